@@ -0,0 +1,112 @@
+package common;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only, memory-mapped input file whose mapping is owned by an
+ * {@link Arena}.
+ *
+ * <p>
+ * {@code FileChannel.map} without an arena returns a {@code MappedByteBuffer}
+ * that is only unmapped once the garbage collector reclaims it, so a process
+ * that solves repeatedly (benchmarks, daemons) accumulates mapped regions.
+ * Closing a {@code MappedInput} closes its arena and unmaps the file at once:
+ *
+ * <pre>{@code
+ * try (MappedInput input = MappedInput.open(filePath)) {
+ *     return solve(input.segment());
+ * }
+ * }</pre>
+ *
+ * <p>
+ * {@link #open(String)} uses a confined arena, so the mapping may only be read
+ * by the opening thread. Solvers that hand chunks to other threads use
+ * {@link #openShared(String)}. In both cases every segment and buffer obtained
+ * from the input becomes inaccessible once it is closed.
+ */
+public final class MappedInput implements AutoCloseable {
+
+    private final Arena arena;
+    private final MemorySegment segment;
+
+    private MappedInput(Arena arena, MemorySegment segment) {
+        this.arena = arena;
+        this.segment = segment;
+    }
+
+    /**
+     * Maps a file for reading on the calling thread only.
+     *
+     * @param filePath The path to the input file.
+     * @return The mapped input.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public static MappedInput open(String filePath) throws IOException {
+        return map(filePath, Arena.ofConfined());
+    }
+
+    /**
+     * Maps a file for reading from any thread.
+     *
+     * @param filePath The path to the input file.
+     * @return The mapped input.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public static MappedInput openShared(String filePath) throws IOException {
+        return map(filePath, Arena.ofShared());
+    }
+
+    private static MappedInput map(String filePath, Arena arena) throws IOException {
+        // The mapping outlives the channel, so the channel is closed right away
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            return new MappedInput(arena, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The whole file.
+     */
+    public MemorySegment segment() {
+        return segment;
+    }
+
+    /**
+     * @return The file size in bytes.
+     */
+    public long size() {
+        return segment.byteSize();
+    }
+
+    /**
+     * @return A buffer view of the whole file. Files of 2 GB or more do not
+     *         fit in a buffer and must be read through {@link #segment()}.
+     */
+    public ByteBuffer asByteBuffer() {
+        return segment.asByteBuffer();
+    }
+
+    /**
+     * @return The arena that owns the mapping, for off-heap data that should
+     *         be released together with it.
+     */
+    public Arena arena() {
+        return arena;
+    }
+
+    /**
+     * Unmaps the file.
+     */
+    @Override
+    public void close() {
+        arena.close();
+    }
+}
@@ -0,0 +1,75 @@
+package day1;
+
+import common.MappedInput;
+import day1.simulation.SimulationResult;
+import day1.simulation.VectorizedSimulationStrategy;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Optimized solution for both parts of Day 1.
+ *
+ * Running {@link Day1Part1Optimized} and {@link Day1Part2Optimized} one after
+ * the other maps, parses and prefix-sums the same file twice. This solver does
+ * each of those once:
+ *
+ * - Memory Mapped I/O for high-performance file reading.
+ * - A single parse, into 16-bit steps whenever every magnitude fits.
+ * - One SIMD pass over the in-register prefix sums that checks every position
+ * for a landing on zero and every step for zero crossings.
+ * - For files above {@code PARALLEL_THRESHOLD}, the compiled binary step cache
+ * ({@link day1.simulation.StepCache}) and one fused parallel prefix scan.
+ */
+public class Day1Optimized {
+
+    private static final String FILE_PATH = "day1/day1.txt";
+    private static final int INITIAL_POSITION = 50;
+
+    /** Threshold in bytes. Files smaller than this are parsed on a single thread. */
+    private static final long PARALLEL_THRESHOLD = 1024 * 1024; // 1 MB
+
+    // Shared across solves so repeated runs reuse the same worker threads; the
+    // result runs count both rules whatever the type
+    private static final VectorizedSimulationStrategy STRATEGY = new VectorizedSimulationStrategy();
+
+    public static void main(String[] args) {
+        try {
+            SimulationResult result = solve(FILE_PATH);
+            System.out.println(result.landings());
+            System.out.println(result.crossings());
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Solves both parts of Day 1 for the given file path.
+     *
+     * @param filePath The path to the input file.
+     * @return The Part 1 answer as {@link SimulationResult#landings()} and the
+     *         Part 2 answer as {@link SimulationResult#crossings()}.
+     * @throws IOException If an I/O error occurs or the simulation fails.
+     */
+    public static SimulationResult solve(String filePath) throws IOException {
+        SimulationResult result = new SimulationResult(INITIAL_POSITION);
+        boolean completed;
+        Path path = Path.of(filePath);
+        if (Files.size(path) >= PARALLEL_THRESHOLD) {
+            // The strategy maps the step cache or the file itself, so it only
+            // needs an arena; both are released as soon as the solve returns
+            try (Arena arena = Arena.ofShared()) {
+                completed = STRATEGY.run(path, arena, result);
+            }
+        } else {
+            try (MappedInput input = MappedInput.openShared(filePath)) {
+                completed = STRATEGY.run(input.asByteBuffer(), result);
+            }
+        }
+        if (!completed) {
+            throw new IOException("Simulation failed for " + filePath);
+        }
+        return result;
+    }
+}
@@ -1,21 +1,33 @@
 package day1;
 
+import common.MappedInput;
+import day1.simulation.StepTokenizer;
+import day1.simulation.VectorizedSimulationStrategy;
+import day1.simulation.VectorizedSimulationStrategy.SimulationType;
 import jdk.incubator.vector.IntVector;
 import jdk.incubator.vector.VectorMask;
 
 import jdk.incubator.vector.VectorSpecies;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
+import java.lang.foreign.Arena;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 /**
  * Optimized solution for Day 1 Part 1 using:
  * 1. Memory Mapped I/O for fast file reading.
- * 2. Custom integer parsing to avoid object allocation.
- * 3. Single-pass prefix sum calculation.
+ * 2. SIMD tokenizer ({@link StepTokenizer}) to avoid per-byte branching.
+ * 3. Single-pass prefix sum calculation, or {@code short[]} steps and
+ * ShortVector kernels when every step magnitude fits in 16 bits.
  * 4. SIMD (Vector API) for parallel zero-check.
+ * 5. For files above {@code PARALLEL_THRESHOLD}, line-aligned parallel parsing
+ * into off-heap step storage ({@link day1.simulation.OffHeapSteps}) fed
+ * straight into {@link VectorizedSimulationStrategy}, so inputs beyond 2 GB
+ * run without a matching heap.
+ * 6. A compiled binary step cache ({@link day1.simulation.StepCache}) for those
+ * files, so repeated runs over an unchanged log skip parsing entirely.
  */
 public class Day1Part1Optimized {
 
@@ -23,6 +35,13 @@ public class Day1Part1Optimized {
     private static final int INITIAL_POSITION = 50;
     private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
 
+    /** Threshold in bytes. Files smaller than this are parsed on a single thread. */
+    private static final long PARALLEL_THRESHOLD = 1024 * 1024; // 1 MB
+
+    // Shared across solves so repeated runs reuse the same worker threads
+    private static final VectorizedSimulationStrategy STRATEGY = new VectorizedSimulationStrategy(
+            SimulationType.PART1_LAND_ON_ZERO);
+
     public static void main(String[] args) {
         try {
             long result = solve(FILE_PATH);
@@ -33,54 +52,35 @@ public class Day1Part1Optimized {
     }
 
     public static long solve(String filePath) throws IOException {
-        try (RandomAccessFile file = new RandomAccessFile(filePath, "r");
-                FileChannel channel = file.getChannel()) {
-
-            long fileSize = channel.size();
-            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
-            return solve(buffer, (int) fileSize);
+        Path path = Path.of(filePath);
+        if (Files.size(path) >= PARALLEL_THRESHOLD) {
+            // Large files: map the compiled step cache, or parse in parallel into
+            // off-heap storage indexed by long and compile it for the next run.
+            // The strategy maps the file itself, so it only needs an arena
+            try (Arena arena = Arena.ofShared()) {
+                return STRATEGY.run(path, arena, INITIAL_POSITION).orElse(0L);
+            }
+        }
+        // The mapping lives exactly as long as the input, and is released as
+        // soon as the solve returns
+        try (MappedInput input = MappedInput.openShared(filePath)) {
+            return solve(input.asByteBuffer(), (int) input.size());
         }
     }
 
     public static long solve(java.nio.ByteBuffer buffer, int sizeEstimate) {
-        // 1. Parse file into int[] steps
+        // 1. Parse file into short[] steps when every magnitude fits in 16 bits,
+        // and count them with the ShortVector kernels
+        short[] narrowSteps = new short[sizeEstimate / 2 + 1];
+        int narrowCount = StepTokenizer.tokenize(buffer.duplicate(), narrowSteps);
+        if (narrowCount >= 0) {
+            return STRATEGY.run(Arrays.copyOf(narrowSteps, narrowCount), INITIAL_POSITION).orElse(0);
+        }
+
+        // Otherwise parse file into int[] steps
         // We overestimate size to avoid resizing.
         int[] steps = new int[sizeEstimate / 2 + 1];
-        int count = 0;
-
-        while (buffer.hasRemaining()) {
-            // Skip whitespace/newlines if any
-            if (buffer.remaining() == 0)
-                break;
-
-            byte b = buffer.get();
-            while (b == '\n' || b == '\r' || b == ' ') {
-                if (!buffer.hasRemaining())
-                    break;
-                b = buffer.get();
-            }
-            if (!buffer.hasRemaining() && (b == '\n' || b == '\r' || b == ' '))
-                break;
-
-            // Parse 'L' or 'R'
-            // 'L' = 76, 'R' = 82
-            // L means subtract, R means add.
-            int sign = (b == 'R') ? 1 : -1;
-
-            // Parse number
-            int val = 0;
-            if (buffer.hasRemaining()) {
-                b = buffer.get();
-                while (b >= '0' && b <= '9') {
-                    val = val * 10 + (b - '0');
-                    if (!buffer.hasRemaining())
-                        break;
-                    b = buffer.get();
-                }
-            }
-
-            steps[count++] = val * sign;
-        }
+        int count = StepTokenizer.tokenize(buffer, steps);
 
         // 2. Compute Prefix Sums in-place
         int currentSum = 0;
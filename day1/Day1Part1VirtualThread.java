@@ -1,20 +1,40 @@
 package day1;
 
+import day1.simulation.DialTransition;
+import day1.simulation.StepTokenizer;
+
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
+/**
+ * Virtual Thread solution for Day 1 Part 1.
+ *
+ * <p>
+ * The file is split into line-aligned byte ranges, and every range is parsed
+ * exactly once on its own virtual thread into a {@link DialTransition}: the
+ * landings for every possible start position plus the net displacement. The
+ * summaries are then folded in order, so no chunk has to wait for its start
+ * position and nothing is parsed twice. The tasks run on a virtual thread
+ * executor that is closed before {@link #solve(String)} returns, so no thread
+ * outlives it, and the first failure cancels the chunks still running.
+ */
 public class Day1Part1VirtualThread {
 
     static String filePath = "day1/day1.txt";
 
+    /** Minimum number of bytes per chunk before the file is split. */
+    private static final int MIN_CHUNK_BYTES = 4 * 1024;
+
     public static void main(String[] args) {
         try {
             long result = solve(filePath);
@@ -25,94 +45,45 @@ public class Day1Part1VirtualThread {
     }
 
     public static long solve(String filePath) throws IOException, InterruptedException, ExecutionException {
-        List<String> lines = Files.readAllLines(Path.of(filePath));
+        byte[] bytes = Files.readAllBytes(Path.of(filePath));
         int numChunks = Runtime.getRuntime().availableProcessors() * 4; // Oversegment for virtual threads
-        if (lines.size() < numChunks) {
-            numChunks = 1;
-        }
-
-        int chunkSize = (int) Math.ceil((double) lines.size() / numChunks);
-        List<List<String>> chunks = new ArrayList<>();
-
-        for (int i = 0; i < lines.size(); i += chunkSize) {
-            chunks.add(lines.subList(i, Math.min(i + chunkSize, lines.size())));
-        }
-
-        // Pass 1: Calculate net displacements for each chunk
-        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
-        List<Future<Long>> displacementFutures = new ArrayList<>();
-
-        for (List<String> chunk : chunks) {
-            displacementFutures.add(executor.submit(() -> calculateNetDisplacement(chunk)));
-        }
-
-        long[] chunkDisplacements = new long[chunks.size()];
-        for (int i = 0; i < chunks.size(); i++) {
-            chunkDisplacements[i] = displacementFutures.get(i).get();
-        }
-
-        // Pass 2: Calculate starting positions (Prefix Sums)
-        long[] startPositions = new long[chunks.size()];
-        long currentPos = 50; // Initial start
-        for (int i = 0; i < chunks.size(); i++) {
-            startPositions[i] = currentPos;
-            currentPos = updatePosition(currentPos, chunkDisplacements[i]);
-        }
-
-        // Pass 3: Count zero landings
-        List<Future<Long>> countFutures = new ArrayList<>();
-        for (int i = 0; i < chunks.size(); i++) {
-            final int chunkIndex = i;
-            final long startPos = startPositions[i];
-            final List<String> chunk = chunks.get(i);
-
-            countFutures.add(executor.submit(() -> countZeroLandings(chunk, startPos)));
+        numChunks = Math.max(1, Math.min(numChunks, bytes.length / MIN_CHUNK_BYTES));
+        int[] bounds = StepTokenizer.splitLines(ByteBuffer.wrap(bytes), numChunks);
+
+        // Parse and summarize every chunk once; the first failure cancels the rest
+        List<Future<DialTransition>> summaries = new ArrayList<>(numChunks);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletionService<DialTransition> completed = new ExecutorCompletionService<>(executor);
+            for (int c = 0; c < numChunks; c++) {
+                int from = bounds[c];
+                int to = bounds[c + 1];
+                summaries.add(completed.submit(() -> summarize(bytes, from, to)));
+            }
+            try {
+                // Chunks are taken in completion order, so get() throws on the first failure
+                for (int c = 0; c < numChunks; c++) {
+                    completed.take().get();
+                }
+            } finally {
+                // After a failure or an interrupt, stop the rest; a no-op once all are done
+                summaries.forEach(summary -> summary.cancel(true));
+            }
         }
 
+        // Fold the summaries in order; each chunk starts where the previous ended
         long totalCount = 0;
-        for (Future<Long> f : countFutures) {
-            totalCount += f.get();
+        int currentPos = 50; // Initial start
+        for (Future<DialTransition> summary : summaries) {
+            DialTransition transition = summary.resultNow();
+            totalCount += transition.hits(currentPos);
+            currentPos = (currentPos + transition.delta()) % DialTransition.DIAL_SIZE;
         }
-
-        executor.shutdown();
         return totalCount;
     }
 
-    private static long calculateNetDisplacement(List<String> chunk) {
-        long displacement = 0;
-        for (String line : chunk) {
-            displacement += parseLine(line);
-        }
-        return displacement;
-    }
-
-    // Helper to normalize position to 0-99
-    private static long updatePosition(long currentPos, long displacement) {
-        long newPos = (currentPos + displacement) % 100;
-        if (newPos < 0)
-            newPos += 100;
-        return newPos;
-    }
-
-    private static int parseLine(String line) {
-        int steps = Integer.parseInt(line.substring(1));
-        if (line.startsWith("L")) {
-            return -steps;
-        } else {
-            return steps;
-        }
-    }
-
-    private static long countZeroLandings(List<String> chunk, long startPos) {
-        long currentPos = startPos;
-        long count = 0;
-        for (String line : chunk) {
-            int displacement = parseLine(line);
-            currentPos = updatePosition(currentPos, displacement);
-            if (currentPos == 0) {
-                count++;
-            }
-        }
-        return count;
+    private static DialTransition summarize(byte[] bytes, int from, int to) {
+        int[] steps = new int[(to - from + 1) / 2];
+        int count = StepTokenizer.tokenize(bytes, from, to, steps, 0);
+        return DialTransition.ofSteps(steps, 0, count);
     }
 }
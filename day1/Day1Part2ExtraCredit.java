@@ -26,13 +26,15 @@ public class Day1Part2ExtraCredit {
     }
 
     public static Optional<Integer> solve(String filePath) {
-        DialSimulator simulator = new DialSimulator.Builder()
-                .filePath(filePath)
-                .initialPosition(INITIAL_DIAL_POSITION)
-                .strategy(
-                        new VectorizedSimulationStrategy(VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO))
-                .build();
+        try (VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(
+                VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO)) {
+            DialSimulator simulator = new DialSimulator.Builder()
+                    .filePath(filePath)
+                    .initialPosition(INITIAL_DIAL_POSITION)
+                    .strategy(strategy)
+                    .build();
 
-        return simulator.run();
+            return simulator.run();
+        }
     }
 }
@@ -1,11 +1,13 @@
 package day1;
 
+import common.MappedInput;
+import day1.simulation.StepTokenizer;
 import day1.simulation.VectorizedSimulationStrategy;
 import day1.simulation.VectorizedSimulationStrategy.SimulationType;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
+import java.lang.foreign.Arena;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Optional;
 
 /**
@@ -18,12 +20,24 @@ import java.util.Optional;
  * - {@link VectorizedSimulationStrategy} for SIMD-accelerated zero-crossing
  * counting.
  * - Vectorized integer parsing for SIMD-accelerated parsing.
+ * - Line-aligned parallel parsing into off-heap step storage for files above
+ * {@code PARALLEL_THRESHOLD}, so inputs beyond 2 GB run without a matching
+ * heap.
+ * - A compiled binary step cache ({@link day1.simulation.StepCache}) for those
+ * files, so repeated runs over an unchanged log skip parsing entirely.
  */
 public class Day1Part2Optimized {
 
     private static final String FILE_PATH = "day1/day1.txt";
     private static final int INITIAL_POSITION = 50;
 
+    /** Threshold in bytes. Files smaller than this are parsed on a single thread. */
+    private static final long PARALLEL_THRESHOLD = 1024 * 1024; // 1 MB
+
+    // Shared across solves so repeated runs reuse the same worker threads
+    private static final VectorizedSimulationStrategy STRATEGY = new VectorizedSimulationStrategy(
+            SimulationType.PART2_CROSS_ZERO);
+
     public static void main(String[] args) {
         try {
             long result = solve(FILE_PATH);
@@ -41,12 +55,19 @@ public class Day1Part2Optimized {
      * @throws IOException If an I/O error occurs.
      */
     public static long solve(String filePath) throws IOException {
-        try (RandomAccessFile file = new RandomAccessFile(filePath, "r");
-                FileChannel channel = file.getChannel()) {
-
-            long fileSize = channel.size();
-            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
-            return solve(buffer, (int) fileSize);
+        Path path = Path.of(filePath);
+        if (Files.size(path) >= PARALLEL_THRESHOLD) {
+            // Large files: map the compiled step cache, or parse in parallel into
+            // off-heap storage indexed by long and compile it for the next run.
+            // The strategy maps the file itself, so it only needs an arena
+            try (Arena arena = Arena.ofShared()) {
+                return STRATEGY.run(path, arena, INITIAL_POSITION).orElse(0L);
+            }
+        }
+        // The mapping lives exactly as long as the input, and is released as
+        // soon as the solve returns
+        try (MappedInput input = MappedInput.openShared(filePath)) {
+            return solve(input.asByteBuffer(), (int) input.size());
         }
     }
 
@@ -61,48 +82,13 @@ public class Day1Part2Optimized {
         // 1. Parse file into int[] steps
         // We overestimate size to avoid resizing.
         int[] steps = new int[sizeEstimate / 2 + 1];
-        int count = 0;
-
-        while (buffer.hasRemaining()) {
-            // Skip whitespace/newlines if any
-            if (buffer.remaining() == 0)
-                break;
-
-            byte b = buffer.get();
-            while (b == '\n' || b == '\r' || b == ' ') {
-                if (!buffer.hasRemaining())
-                    break;
-                b = buffer.get();
-            }
-            if (!buffer.hasRemaining() && (b == '\n' || b == '\r' || b == ' '))
-                break;
-
-            // Parse 'L' or 'R'
-            // 'L' = 76, 'R' = 82
-            // L means subtract, R means add.
-            int sign = (b == 'R') ? 1 : -1;
-
-            // Parse number
-            int val = 0;
-            if (buffer.hasRemaining()) {
-                b = buffer.get();
-                while (b >= '0' && b <= '9') {
-                    val = val * 10 + (b - '0');
-                    if (!buffer.hasRemaining())
-                        break;
-                    b = buffer.get();
-                }
-            }
-
-            steps[count++] = val * sign;
-        }
+        int count = StepTokenizer.tokenize(buffer, steps);
 
         int[] actualSteps = new int[count];
         System.arraycopy(steps, 0, actualSteps, 0, count);
 
         // 2. Execute Strategy
-        VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(SimulationType.PART2_CROSS_ZERO);
-        Optional<Integer> result = strategy.run(actualSteps, INITIAL_POSITION);
+        Optional<Integer> result = STRATEGY.run(actualSteps, INITIAL_POSITION);
 
         return result.orElse(0);
     }
@@ -1,19 +1,39 @@
 package day1;
 
+import day1.simulation.CrossingTransition;
+import day1.simulation.DialTransition;
+import day1.simulation.StepTokenizer;
+
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
+/**
+ * Virtual Thread solution for Day 1 Part 2.
+ *
+ * <p>
+ * Same pipeline as {@link Day1Part1VirtualThread}: every line-aligned byte
+ * range is parsed once on its own virtual thread into a
+ * {@link CrossingTransition} (the zero crossings for every start position and
+ * the net displacement), and the summaries are folded in order. The first
+ * failure cancels the chunks still running.
+ */
 public class Day1Part2VirtualThread {
 
     static String filePath = "day1/day1.txt";
 
+    /** Minimum number of bytes per chunk before the file is split. */
+    private static final int MIN_CHUNK_BYTES = 4 * 1024;
+
     public static void main(String[] args) {
         try {
             long result = solve(filePath);
@@ -24,103 +44,46 @@ public class Day1Part2VirtualThread {
     }
 
     public static long solve(String filePath) throws IOException, InterruptedException, ExecutionException {
-        List<String> lines = Files.readAllLines(Path.of(filePath));
+        byte[] bytes = Files.readAllBytes(Path.of(filePath));
         // Oversubscribe chunks to leverage virtual threads
         int numChunks = Runtime.getRuntime().availableProcessors() * 4;
-        if (lines.size() < numChunks) {
-            numChunks = 1;
-        }
-
-        int chunkSize = (int) Math.ceil((double) lines.size() / numChunks);
-        List<List<String>> chunks = new ArrayList<>();
-
-        for (int i = 0; i < lines.size(); i += chunkSize) {
-            chunks.add(lines.subList(i, Math.min(i + chunkSize, lines.size())));
-        }
-
-        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
-
-        // Pass 1: Net displacement per chunk (Identical to Part 1 logic)
-        List<Future<Long>> displacementFutures = new ArrayList<>();
-        for (List<String> chunk : chunks) {
-            displacementFutures.add(executor.submit(() -> calculateNetDisplacement(chunk)));
-        }
-
-        long[] chunkDisplacements = new long[chunks.size()];
-        for (int i = 0; i < chunks.size(); i++) {
-            chunkDisplacements[i] = displacementFutures.get(i).get();
-        }
-
-        // Pass 2: Prefix sum for start positions
-        long[] startPositions = new long[chunks.size()];
-        long currentPos = 50;
-        for (int i = 0; i < chunks.size(); i++) {
-            startPositions[i] = currentPos;
-            currentPos = updatePosition(currentPos, chunkDisplacements[i]);
-        }
-
-        // Pass 3: Detailed simulation counting
-        List<Future<Long>> countFutures = new ArrayList<>();
-        for (int i = 0; i < chunks.size(); i++) {
-            final long startPos = startPositions[i];
-            final List<String> chunk = chunks.get(i);
-            countFutures.add(executor.submit(() -> countZeroCrossings(chunk, startPos)));
+        numChunks = Math.max(1, Math.min(numChunks, bytes.length / MIN_CHUNK_BYTES));
+        int[] bounds = StepTokenizer.splitLines(ByteBuffer.wrap(bytes), numChunks);
+
+        // Parse and summarize every chunk once; the first failure cancels the rest
+        List<Future<CrossingTransition>> summaries = new ArrayList<>(numChunks);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletionService<CrossingTransition> completed = new ExecutorCompletionService<>(executor);
+            for (int c = 0; c < numChunks; c++) {
+                int from = bounds[c];
+                int to = bounds[c + 1];
+                summaries.add(completed.submit(() -> summarize(bytes, from, to)));
+            }
+            try {
+                // Chunks are taken in completion order, so get() throws on the first failure
+                for (int c = 0; c < numChunks; c++) {
+                    completed.take().get();
+                }
+            } finally {
+                // After a failure or an interrupt, stop the rest; a no-op once all are done
+                summaries.forEach(summary -> summary.cancel(true));
+            }
         }
 
+        // Fold the summaries in order; each chunk starts where the previous ended
         long totalCount = 0;
-        for (Future<Long> f : countFutures) {
-            totalCount += f.get();
+        int currentPos = 50;
+        for (Future<CrossingTransition> summary : summaries) {
+            CrossingTransition transition = summary.resultNow();
+            totalCount += transition.crossings(currentPos);
+            currentPos = (currentPos + transition.delta()) % DialTransition.DIAL_SIZE;
         }
-
-        executor.shutdown();
         return totalCount;
     }
 
-    private static long calculateNetDisplacement(List<String> chunk) {
-        long displacement = 0;
-        for (String line : chunk) {
-            int steps = Integer.parseInt(line.substring(1));
-            if (line.startsWith("L")) {
-                displacement -= steps;
-            } else {
-                displacement += steps;
-            }
-        }
-        return displacement;
-    }
-
-    private static long updatePosition(long currentPos, long displacement) {
-        long newPos = (currentPos + displacement) % 100;
-        if (newPos < 0)
-            newPos += 100;
-        return newPos;
-    }
-
-    private static long countZeroCrossings(List<String> chunk, long startPos) {
-        long currentPos = startPos;
-        long count = 0;
-
-        for (String line : chunk) {
-            int steps = Integer.parseInt(line.substring(1));
-            char direction = line.charAt(0);
-
-            // Simulate step-by-step
-            for (int k = 0; k < steps; k++) {
-                if (direction == 'L') {
-                    currentPos--;
-                    if (currentPos < 0)
-                        currentPos = 99;
-                } else {
-                    currentPos++;
-                    if (currentPos > 99)
-                        currentPos = 0;
-                }
-
-                if (currentPos == 0) {
-                    count++;
-                }
-            }
-        }
-        return count;
+    private static CrossingTransition summarize(byte[] bytes, int from, int to) {
+        int[] steps = new int[(to - from + 1) / 2];
+        int count = StepTokenizer.tokenize(bytes, from, to, steps, 0);
+        return CrossingTransition.ofSteps(steps, 0, count);
     }
 }
@@ -0,0 +1,275 @@
+package day1.simulation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.util.Optional;
+
+import day1.simulation.VectorizedSimulationStrategy.SimulationType;
+import java.lang.foreign.MemorySegment;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A simulation strategy that picks the cheapest implementation for every run
+ * from its step count.
+ *
+ * <p>
+ * The candidates, from smallest to largest input:
+ * <ul>
+ * <li>{@link Choice#SCALAR}: a plain loop on the calling thread</li>
+ * <li>{@link Choice#VECTOR}: the SIMD kernels on the calling thread</li>
+ * <li>{@link Choice#PARALLEL_VECTOR}: the SIMD kernels under the parallel
+ * prefix scan, on every worker of the pool</li>
+ * <li>{@link Choice#REDUCTION}: the fork/join transition monoid</li>
+ * </ul>
+ * Small runs therefore never touch the pool, and large runs always use all of
+ * it. The parallel candidates are checked first and compete against the faster
+ * of the two single-threaded ones, so a pool is used for large runs even when
+ * the SIMD kernels never beat the scalar loop. The step counts where one candidate overtakes the next are measured
+ * once per JVM, rule and pool size by timing every candidate on synthetic
+ * steps of growing size, in the spirit of the fixed
+ * {@code PARALLEL_THRESHOLD} of the optimized solvers. Inputs beyond the
+ * largest calibration size always go to the pool when it has more than one
+ * worker. Callers that need reproducible choices pass their own
+ * {@link Thresholds}.
+ *
+ * <p>
+ * The dial has 100 positions, since the transition monoid is fixed to that
+ * size.
+ */
+public class AdaptiveSimulationStrategy implements SimulationStrategy, AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(AdaptiveSimulationStrategy.class);
+
+    /**
+     * The implementation used for a run.
+     */
+    public enum Choice {
+        SCALAR,
+        VECTOR,
+        PARALLEL_VECTOR,
+        REDUCTION
+    }
+
+    /**
+     * The smallest step counts at which each candidate takes over.
+     * {@code Integer.MAX_VALUE} disables a candidate. The parallel thresholds
+     * do not depend on {@code vectorThreshold}.
+     *
+     * @param vectorThreshold    Runs at least this long, but below the parallel
+     *                           threshold, use the SIMD kernels.
+     * @param parallelThreshold  Runs at least this long use the parallel scan.
+     * @param reductionThreshold Runs at least this long use the transition
+     *                           monoid.
+     */
+    public record Thresholds(int vectorThreshold, int parallelThreshold, int reductionThreshold) {
+    }
+
+    /** Step counts timed during calibration, growing by a factor of four. */
+    private static final int[] CALIBRATION_SIZES = { 16, 64, 256, 1024, 4096, 16 * 1024, 64 * 1024, 256 * 1024 };
+    private static final int CALIBRATION_REPEATS = 3;
+
+    private static final Map<String, Thresholds> CALIBRATED = new ConcurrentHashMap<>();
+
+    private final SimulationType type;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final VectorizedSimulationStrategy vectorized;
+    private final TransitionReductionStrategy reduction;
+    private final Thresholds thresholds;
+
+    public AdaptiveSimulationStrategy(SimulationType type) {
+        this(type, new ForkJoinPool(Runtime.getRuntime().availableProcessors()), true, null);
+    }
+
+    /**
+     * Creates a strategy that runs on a caller-supplied pool, calibrating the
+     * thresholds for that pool's parallelism if this has not happened yet. The
+     * pool is not shut down by {@link #close()}.
+     *
+     * @param type The counting rule to apply.
+     * @param pool The fork/join pool for large runs.
+     */
+    public AdaptiveSimulationStrategy(SimulationType type, ForkJoinPool pool) {
+        this(type, pool, false, null);
+    }
+
+    /**
+     * Creates a strategy with fixed thresholds instead of calibrated ones.
+     *
+     * @param type       The counting rule to apply.
+     * @param pool       The fork/join pool for large runs.
+     * @param thresholds The step counts at which each candidate takes over.
+     */
+    public AdaptiveSimulationStrategy(SimulationType type, ForkJoinPool pool, Thresholds thresholds) {
+        this(type, pool, false, thresholds);
+    }
+
+    private AdaptiveSimulationStrategy(SimulationType type, ForkJoinPool pool, boolean ownsPool,
+            Thresholds thresholds) {
+        this.type = type;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.vectorized = new VectorizedSimulationStrategy(type, pool);
+        this.reduction = new TransitionReductionStrategy(type, pool);
+        this.thresholds = (thresholds != null) ? thresholds : calibrated(type, pool, vectorized, reduction);
+    }
+
+    /**
+     * @return The thresholds this strategy chooses by.
+     */
+    public Thresholds thresholds() {
+        return thresholds;
+    }
+
+    /**
+     * @return The implementation a run of {@code stepCount} steps uses.
+     */
+    public Choice choose(int stepCount) {
+        if (pool.getParallelism() > 1) {
+            if (stepCount >= thresholds.reductionThreshold()) {
+                return Choice.REDUCTION;
+            }
+            if (stepCount >= thresholds.parallelThreshold()) {
+                return Choice.PARALLEL_VECTOR;
+            }
+        }
+        return (stepCount >= thresholds.vectorThreshold()) ? Choice.VECTOR : Choice.SCALAR;
+    }
+
+    @Override
+    public Optional<Integer> run(int[] steps, int initialPosition) {
+        return switch (choose(steps.length)) {
+            case SCALAR -> VectorizedSimulationStrategy.intCount(scalar(steps, initialPosition, type));
+            case VECTOR -> VectorizedSimulationStrategy.intCount(vector(steps, initialPosition, type));
+            case PARALLEL_VECTOR -> vectorized.run(steps, initialPosition);
+            case REDUCTION -> reduction.run(steps, initialPosition);
+        };
+    }
+
+    @Override
+    public boolean run(int[] steps, SimulationResult result) {
+        return switch (choose(steps.length)) {
+            case SCALAR, VECTOR -> SimulationStrategy.super.run(steps, result);
+            case PARALLEL_VECTOR -> vectorized.run(steps, result);
+            case REDUCTION -> reduction.run(steps, result);
+        };
+    }
+
+    /**
+     * Shuts down the pool if it is owned by this strategy. Injected pools are
+     * left running.
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    private static long vector(int[] steps, int initialPosition, SimulationType type) {
+        MemorySegment segment = MemorySegment.ofArray(steps);
+        return (type == SimulationType.PART1_LAND_ON_ZERO)
+                ? DialKernels.countLandings(segment, 0, steps.length, initialPosition, DialModulus.DEFAULT)
+                : DialKernels.countCrossings(segment, 0, steps.length, initialPosition, DialModulus.DEFAULT);
+    }
+
+    private static long scalar(int[] steps, int initialPosition, SimulationType type) {
+        int size = DialTransition.DIAL_SIZE;
+        int position = Math.floorMod(initialPosition, size);
+        long count = 0;
+        for (int step : steps) {
+            int next = position + step;
+            if (type == SimulationType.PART1_LAND_ON_ZERO) {
+                count += (Math.floorMod(next, size) == 0) ? 1 : 0;
+            } else if (step > 0) {
+                count += Math.floorDiv(next, size) - Math.floorDiv(position, size);
+            } else if (step < 0) {
+                count += Math.floorDiv(position - 1, size) - Math.floorDiv(next - 1, size);
+            }
+            position = Math.floorMod(next, size);
+        }
+        return count;
+    }
+
+    private static Thresholds calibrated(SimulationType type, ForkJoinPool pool,
+            VectorizedSimulationStrategy vectorized, TransitionReductionStrategy reduction) {
+        return CALIBRATED.computeIfAbsent(type + "/" + pool.getParallelism(),
+                key -> calibrate(type, pool, vectorized, reduction));
+    }
+
+    /**
+     * Times every candidate on synthetic steps of each calibration size and
+     * returns the sizes where the faster candidate changes.
+     */
+    private static Thresholds calibrate(SimulationType type, ForkJoinPool pool,
+            VectorizedSimulationStrategy vectorized, TransitionReductionStrategy reduction) {
+        long started = System.nanoTime();
+        Random random = new Random(1);
+        int largest = CALIBRATION_SIZES[CALIBRATION_SIZES.length - 1];
+        int[] steps = new int[largest];
+        for (int i = 0; i < largest; i++) {
+            int magnitude = random.nextInt(1000);
+            steps[i] = random.nextBoolean() ? magnitude : -magnitude;
+        }
+
+        // Warm up every candidate so the timings compare compiled code
+        int[] warmup = Arrays.copyOf(steps, 16 * 1024);
+        for (int i = 0; i < 20; i++) {
+            scalar(warmup, 50, type);
+            vector(warmup, 50, type);
+            vectorized.run(warmup, 50);
+        }
+
+        // Beyond the measured sizes a multi-core pool is always worth its hand-off
+        int vectorThreshold = Integer.MAX_VALUE;
+        int parallelThreshold = (pool.getParallelism() > 1) ? 4 * largest : Integer.MAX_VALUE;
+        boolean parallelWon = false;
+        for (int size : CALIBRATION_SIZES) {
+            int[] input = Arrays.copyOf(steps, size);
+            long scalarTime = time(() -> scalar(input, 50, type));
+            long vectorTime = time(() -> vector(input, 50, type));
+            if (vectorThreshold == Integer.MAX_VALUE && vectorTime < scalarTime) {
+                vectorThreshold = size;
+            }
+            // The pool has to beat whichever single-threaded candidate is faster
+            if (pool.getParallelism() > 1 && !parallelWon
+                    && time(() -> vectorized.run(input, 50)) < Math.min(scalarTime, vectorTime)) {
+                parallelThreshold = size;
+                parallelWon = true;
+            }
+        }
+
+        // The monoid does a hundred times the work per step; it only takes over
+        // if it still beats the scan at the largest size
+        int reductionThreshold = Integer.MAX_VALUE;
+        if (parallelThreshold != Integer.MAX_VALUE) {
+            reduction.run(steps, 50);
+            if (time(() -> reduction.run(steps, 50)) < time(() -> vectorized.run(steps, 50))) {
+                reductionThreshold = largest;
+            }
+        }
+
+        Thresholds thresholds = new Thresholds(vectorThreshold, parallelThreshold,
+                Math.max(parallelThreshold, reductionThreshold));
+        logger.info("Calibrated {} on {} threads in {} ms: {}", type, pool.getParallelism(),
+                (System.nanoTime() - started) / 1_000_000, thresholds);
+        return thresholds;
+    }
+
+    /**
+     * @return The fastest of a few timed runs, in nanoseconds.
+     */
+    private static long time(Runnable run) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_REPEATS; i++) {
+            long started = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - started);
+        }
+        return best;
+    }
+}
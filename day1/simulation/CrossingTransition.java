@@ -0,0 +1,107 @@
+package day1.simulation;
+
+/**
+ * Summary of how many times a sequence of steps passes through zero, for
+ * every possible start position at once.
+ *
+ * <p>
+ * {@code crossings[s]} is the Part 2 count when the sequence starts at
+ * position {@code s}, and {@code delta} is the net change in position (mod
+ * 100). This is the crossing-rule counterpart of {@link DialTransition}: the
+ * count from any start only depends on the start position mod 100, so two
+ * consecutive summaries merge in O(100) and Part 2 can be computed as a plain
+ * associative reduction, with no start-position barrier between phases.
+ */
+public final class CrossingTransition {
+
+    private static final int DIAL_SIZE = DialTransition.DIAL_SIZE;
+
+    public static final CrossingTransition IDENTITY = new CrossingTransition(new long[DIAL_SIZE], 0);
+
+    // crossings[i] = number of times we pass 0 starting from position i
+    private final long[] crossings;
+    // delta = net change in position (modulo 100)
+    private final int delta;
+
+    private CrossingTransition(long[] crossings, int delta) {
+        this.crossings = crossings;
+        this.delta = delta;
+    }
+
+    /**
+     * Creates the transition of a single step.
+     */
+    public static CrossingTransition of(int step) {
+        return ofSteps(new int[] { step }, 0, 1);
+    }
+
+    /**
+     * Rebuilds a transition from the per-start crossing counts and net displacement
+     * of a summary computed elsewhere, such as a {@link StartPositionSweep}.
+     */
+    static CrossingTransition of(long[] crossings, int delta) {
+        if (crossings.length != DIAL_SIZE || delta < 0 || delta >= DIAL_SIZE) {
+            throw new IllegalArgumentException(
+                    "Expected " + DIAL_SIZE + " counts and a delta in [0, " + DIAL_SIZE + ")");
+        }
+        return new CrossingTransition(crossings.clone(), delta);
+    }
+
+    /**
+     * Parses a transition from a line such as "L50" or "R100".
+     */
+    public static CrossingTransition parse(String line) {
+        int steps = Integer.parseInt(line.substring(1));
+        return of(line.startsWith("L") ? -steps : steps);
+    }
+
+    /**
+     * Summarizes {@code steps[from, to)} in O(length + 100) using a
+     * {@link StartPositionSweep}.
+     */
+    public static CrossingTransition ofSteps(int[] steps, int from, int to) {
+        StartPositionSweep sweep = new StartPositionSweep();
+        sweep.accept(steps, from, to);
+        return new CrossingTransition(sweep.crossings(), sweep.offset());
+    }
+
+    /**
+     * Merges two transitions: first then second.
+     *
+     * <p>
+     * new_crossings[s] = first.crossings[s] + second.crossings[(s + first.delta) % 100]
+     * new_delta = (first.delta + second.delta) % 100
+     */
+    public static CrossingTransition merge(CrossingTransition first, CrossingTransition second) {
+        if (first == IDENTITY)
+            return second;
+        if (second == IDENTITY)
+            return first;
+
+        int newDelta = (first.delta + second.delta) % DIAL_SIZE;
+        long[] newCrossings = new long[DIAL_SIZE];
+
+        for (int i = 0; i < DIAL_SIZE; i++) {
+            // Crossings from first part + crossings from second part (starting where
+            // first part ended)
+            newCrossings[i] = first.crossings[i] + second.crossings[(i + first.delta) % DIAL_SIZE];
+        }
+
+        return new CrossingTransition(newCrossings, newDelta);
+    }
+
+    /**
+     * @return The number of times the dial passes through zero when starting
+     *         from {@code startPosition}.
+     */
+    public long crossings(int startPosition) {
+        return crossings[Math.floorMod(startPosition, DIAL_SIZE)];
+    }
+
+    /**
+     * @return The net change in position, in {@code [0, 100)}.
+     */
+    public int delta() {
+        return delta;
+    }
+}
@@ -0,0 +1,291 @@
+package day1.simulation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Simulates many step files concurrently in one JVM.
+ * Uses the Builder pattern for configuration, like {@link DialSimulator}.
+ *
+ * <p>
+ * Every file gets its own virtual thread, which blocks cheaply while the file
+ * is read. The strategy itself always runs on a single shared compute pool, so
+ * the kernels of all files compete for the same fixed set of cores instead of
+ * oversubscribing them. A {@link VectorizedSimulationStrategy} should be
+ * created on that same pool so its scan forks stay inside it.
+ *
+ * <p>
+ * Results are handed back in completion order, so small files are reported
+ * while large ones are still being read.
+ */
+public class DialBatchSimulator {
+    private static final Logger logger = LogManager.getLogger(DialBatchSimulator.class);
+    private static final int DEFAULT_MAX_OPEN_FILES = 64;
+
+    /**
+     * The outcome for one file.
+     *
+     * @param path  The simulated file.
+     * @param count The count of zero crossings, or empty if the file failed.
+     */
+    public record FileResult(Path path, Optional<Integer> count) {
+    }
+
+    private final List<Path> filePaths;
+    private final Path directory;
+    private final int initialPosition;
+    private final SimulationStrategy strategy;
+    private final ForkJoinPool computePool;
+    private final boolean streaming;
+    private final int blockSize;
+    private final int modulus;
+    private final int maxOpenFiles;
+
+    private DialBatchSimulator(Builder builder) {
+        this.filePaths = List.copyOf(builder.filePaths);
+        this.directory = builder.directory;
+        this.initialPosition = builder.initialPosition;
+        this.strategy = builder.strategy;
+        this.computePool = builder.computePool;
+        this.streaming = builder.streaming;
+        this.blockSize = builder.blockSize;
+        this.modulus = builder.modulus;
+        this.maxOpenFiles = builder.maxOpenFiles;
+    }
+
+    /**
+     * Simulates every file and passes each result to {@code onResult} as soon
+     * as it is ready. Callbacks run on the calling thread, one at a time.
+     *
+     * @param onResult Receives one result per file, in completion order.
+     * @throws IOException          If the input directory cannot be listed.
+     * @throws InterruptedException If the caller is interrupted while waiting.
+     */
+    public void run(Consumer<FileResult> onResult) throws IOException, InterruptedException {
+        List<Path> paths = resolvePaths();
+        logger.info("Starting batch simulation of {} files...", paths.size());
+
+        // Bounds the number of files held in memory at once
+        Semaphore openFiles = new Semaphore(maxOpenFiles);
+
+        try (ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletionService<FileResult> completed = new ExecutorCompletionService<>(readers);
+            Map<Future<FileResult>, Path> submitted = new HashMap<>();
+            for (Path path : paths) {
+                submitted.put(completed.submit(() -> simulate(path, openFiles)), path);
+            }
+            for (int i = 0; i < paths.size(); i++) {
+                Future<FileResult> done = completed.take();
+                if (done.state() == Future.State.SUCCESS) {
+                    onResult.accept(done.resultNow());
+                } else {
+                    // Only an interrupt while waiting for a file slot ends a task without a result
+                    Path path = submitted.get(done);
+                    logger.error("Simulation did not complete for file: {}", path, done.exceptionNow());
+                    onResult.accept(new FileResult(path, Optional.empty()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Simulates every file and collects the results.
+     *
+     * @return One result per file, in completion order.
+     * @throws IOException          If the input directory cannot be listed.
+     * @throws InterruptedException If the caller is interrupted while waiting.
+     */
+    public List<FileResult> runAll() throws IOException, InterruptedException {
+        List<FileResult> results = new ArrayList<>();
+        run(results::add);
+        return results;
+    }
+
+    private FileResult simulate(Path path, Semaphore openFiles) throws InterruptedException {
+        openFiles.acquire();
+        try {
+            DialSimulator simulator = new DialSimulator.Builder()
+                    .filePath(path.toString())
+                    .initialPosition(initialPosition)
+                    .strategy(new OnComputePool(strategy, computePool))
+                    .streaming(streaming)
+                    .blockSize(blockSize)
+                    .modulus(modulus)
+                    .build();
+            return new FileResult(path, simulator.run());
+        } catch (RuntimeException e) {
+            logger.error("Simulation failed for file: {}", path, e);
+            return new FileResult(path, Optional.empty());
+        } finally {
+            openFiles.release();
+        }
+    }
+
+    private List<Path> resolvePaths() throws IOException {
+        List<Path> paths = new ArrayList<>(filePaths);
+        if (directory != null) {
+            List<Path> listed = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, Files::isRegularFile)) {
+                entries.forEach(listed::add);
+            }
+            listed.sort(null);
+            paths.addAll(listed);
+        }
+        return paths;
+    }
+
+    /**
+     * Submits every run of {@code strategy} to {@code pool} and waits for it,
+     * so the simulator reads and parses on the calling virtual thread and only
+     * the counting moves to the pool. The modulus and the runs are the
+     * strategy's own.
+     */
+    private record OnComputePool(SimulationStrategy strategy, ForkJoinPool pool) implements SimulationStrategy {
+
+        @Override
+        public Optional<Integer> run(int[] steps, int initialPosition) {
+            return pool.submit(() -> strategy.run(steps, initialPosition)).join();
+        }
+
+        @Override
+        public Optional<Integer> run(int[] steps, int initialPosition, SimulationListener listener) {
+            return pool.submit(() -> strategy.run(steps, initialPosition, listener)).join();
+        }
+
+        @Override
+        public int modulus() {
+            return strategy.modulus();
+        }
+
+        @Override
+        public boolean run(int[] steps, SimulationResult result) {
+            return pool.submit(() -> strategy.run(steps, result)).join();
+        }
+    }
+
+    public static class Builder {
+        private final List<Path> filePaths = new ArrayList<>();
+        private Path directory;
+        private int initialPosition = 0;
+        private SimulationStrategy strategy;
+        private ForkJoinPool computePool = ForkJoinPool.commonPool();
+        private boolean streaming = false;
+        private int blockSize = 64 * 1024;
+        private int modulus = DialTransition.DIAL_SIZE;
+        private int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+
+        /**
+         * Adds files to the batch.
+         */
+        public Builder filePaths(List<Path> filePaths) {
+            this.filePaths.addAll(filePaths);
+            return this;
+        }
+
+        /**
+         * Adds every regular file in {@code directory} to the batch. The
+         * directory is listed when the batch runs.
+         */
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        public Builder initialPosition(int initialPosition) {
+            this.initialPosition = initialPosition;
+            return this;
+        }
+
+        public Builder strategy(SimulationStrategy strategy) {
+            this.strategy = strategy;
+            return this;
+        }
+
+        /**
+         * Sets the pool that runs the strategy for every file (default: the
+         * common pool). The pool is not shut down by the batch.
+         */
+        public Builder computePool(ForkJoinPool computePool) {
+            this.computePool = computePool;
+            return this;
+        }
+
+        /**
+         * Enables streaming mode for every file; see
+         * {@link DialSimulator.Builder#streaming(boolean)}.
+         */
+        public Builder streaming(boolean streaming) {
+            this.streaming = streaming;
+            return this;
+        }
+
+        /**
+         * Sets the number of steps per block in streaming mode.
+         */
+        public Builder blockSize(int blockSize) {
+            this.blockSize = blockSize;
+            return this;
+        }
+
+        /**
+         * Sets the number of positions on the dial (default 100). It must
+         * match the strategy's {@link SimulationStrategy#modulus()}.
+         */
+        public Builder modulus(int modulus) {
+            this.modulus = modulus;
+            return this;
+        }
+
+        /**
+         * Sets how many files may be read and simulated at the same time.
+         */
+        public Builder maxOpenFiles(int maxOpenFiles) {
+            this.maxOpenFiles = maxOpenFiles;
+            return this;
+        }
+
+        public DialBatchSimulator build() {
+            if (filePaths.isEmpty() && directory == null) {
+                throw new IllegalStateException("File paths or a directory must be set.");
+            }
+            if (strategy == null) {
+                throw new IllegalStateException("Strategy must be set.");
+            }
+            if (computePool == null) {
+                throw new IllegalStateException("Compute pool must be set.");
+            }
+            if (blockSize <= 0) {
+                throw new IllegalStateException("Block size must be positive.");
+            }
+            if (maxOpenFiles <= 0) {
+                throw new IllegalStateException("Max open files must be positive.");
+            }
+            if (modulus <= 0 || modulus > (1 << 30)) {
+                throw new IllegalStateException("Modulus must be in [1, 2^30].");
+            }
+            if (strategy.modulus() != modulus) {
+                throw new IllegalStateException("Strategy modulus " + strategy.modulus()
+                        + " does not match the dial modulus " + modulus + ".");
+            }
+            return new DialBatchSimulator(this);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package day1.simulation;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+/**
+ * The SIMD counting kernels behind every dial strategy and counter.
+ *
+ * <p>
+ * Each rule has one kernel over {@code int} steps and one over 16-bit steps.
+ * {@code int} steps are read from a {@link MemorySegment}, so heap arrays
+ * ({@link MemorySegment#ofArray(int[])}) and off-heap storage share the same
+ * code. The Vector API only loads heap segments backed by a {@code byte[]},
+ * so {@link #load(MemorySegment, int[], long)} reads {@code int[]} segments
+ * through their array instead.
+ *
+ * <p>
+ * Inside a kernel, the position after every step is derived with an
+ * in-register prefix sum ({@link ParallelPrefixScan#inclusivePrefix(IntVector)})
+ * and positions are reduced with the constants of a {@link DialModulus}. Those
+ * only hold inside {@link DialModulus#RANGE}, so a vector with a step large
+ * enough to carry a position outside it is counted by the scalar loop, which
+ * is exact for any step.
+ */
+final class DialKernels {
+
+    static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    // Same vector size as SPECIES, so one short vector widens into exactly two int vectors
+    static final VectorSpecies<Short> NARROW_SPECIES = VectorSpecies.of(short.class, SPECIES.vectorShape());
+
+    private DialKernels() {
+    }
+
+    /**
+     * Counts the steps in {@code [from, to)} that end exactly on zero.
+     */
+    static long countLandings(MemorySegment steps, long from, long to, int startPosition, DialModulus modulus) {
+        int[] heap = heapArray(steps);
+        long count = 0;
+        int position = modulus.floorMod(startPosition);
+        int limit = wideLimit(modulus);
+        long i = from;
+        long loopBound = from + wideLoopBound(to - from, limit);
+
+        while (i < to) {
+            if (i < loopBound) {
+                IntVector vStep = load(steps, heap, i);
+                if (fitsWide(vStep, limit)) {
+                    // Vectorized Part 1: Check if (position + prefixSum) mod m == 0
+                    IntVector vCurr = ParallelPrefixScan.inclusivePrefix(vStep).add(position);
+                    count += landings(vCurr, modulus);
+                    // The last lane is the position after the final step of this vector
+                    position = modulus.floorMod(vCurr.lane(SPECIES.length() - 1));
+                    i += SPECIES.length();
+                    continue;
+                }
+            }
+
+            // Scalar Part 1: the tail, or a vector of steps too large to sum in lanes
+            for (long end = Math.min(i + SPECIES.length(), to); i < end; i++) {
+                position = modulus.floorMod((long) position + steps.getAtIndex(ValueLayout.JAVA_INT, i));
+                if (position == 0) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts every time the dial passes through zero while executing the steps
+     * in {@code [from, to)}.
+     */
+    static long countCrossings(MemorySegment steps, long from, long to, int startPosition, DialModulus modulus) {
+        int[] heap = heapArray(steps);
+        long count = 0;
+        int position = modulus.floorMod(startPosition);
+        int limit = wideLimit(modulus);
+        long i = from;
+        long loopBound = from + wideLoopBound(to - from, limit);
+
+        while (i < to) {
+            if (i < loopBound) {
+                // Load steps and derive current absolute positions
+                IntVector vStep = load(steps, heap, i);
+                if (fitsWide(vStep, limit)) {
+                    // Vectorized Part 2: Check for zero crossings
+                    IntVector vCurr = ParallelPrefixScan.inclusivePrefix(vStep).add(position);
+                    count += crossings(vStep, vCurr, modulus);
+                    // The last lane is the position after the final step of this vector
+                    position = modulus.floorMod(vCurr.lane(SPECIES.length() - 1));
+                    i += SPECIES.length();
+                    continue;
+                }
+            }
+
+            // Scalar Part 2: the tail, or a vector of steps too large to sum in lanes
+            for (long end = Math.min(i + SPECIES.length(), to); i < end; i++) {
+                int step = steps.getAtIndex(ValueLayout.JAVA_INT, i);
+                count += crossings(position, step, modulus);
+                position = modulus.floorMod((long) position + step);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts both rules over the steps in {@code [from, to)} in one pass,
+     * starting from {@code result.position()}, and adds them to {@code result}.
+     * Each vector of positions is derived once and checked for landings and
+     * crossings alike.
+     */
+    static void countBoth(MemorySegment steps, long from, long to, DialModulus modulus, SimulationResult result) {
+        int[] heap = heapArray(steps);
+        long landed = 0;
+        long crossed = 0;
+        int position = modulus.floorMod(result.position());
+        int limit = wideLimit(modulus);
+        long i = from;
+        long loopBound = from + wideLoopBound(to - from, limit);
+
+        while (i < to) {
+            if (i < loopBound) {
+                IntVector vStep = load(steps, heap, i);
+                if (fitsWide(vStep, limit)) {
+                    IntVector vCurr = ParallelPrefixScan.inclusivePrefix(vStep).add(position);
+                    landed += landings(vCurr, modulus);
+                    crossed += crossings(vStep, vCurr, modulus);
+                    position = modulus.floorMod(vCurr.lane(SPECIES.length() - 1));
+                    i += SPECIES.length();
+                    continue;
+                }
+            }
+
+            for (long end = Math.min(i + SPECIES.length(), to); i < end; i++) {
+                int step = steps.getAtIndex(ValueLayout.JAVA_INT, i);
+                crossed += crossings(position, step, modulus);
+                position = modulus.floorMod((long) position + step);
+                if (position == 0) {
+                    landed++;
+                }
+            }
+        }
+        result.add(landed, crossed, to - from, position);
+    }
+
+    /**
+     * Counts the 16-bit steps in {@code [from, to)} that end exactly on zero.
+     */
+    static long countLandings(short[] steps, int from, int to, int startPosition, DialModulus modulus) {
+        long count = 0;
+        int position = modulus.floorMod(startPosition);
+        short limit = narrowLimit(modulus);
+        int i = from;
+        int loopBound = from + narrowLoopBound(to - from, modulus);
+
+        for (; i < loopBound; i += NARROW_SPECIES.length()) {
+            ShortVector vStep = ShortVector.fromArray(NARROW_SPECIES, steps, i);
+            IntVector[] vCurr = positions(vStep, position, limit);
+            IntVector vCurrLow = vCurr[0];
+            IntVector vCurrHigh = vCurr[1];
+            count += landings(vCurrLow, modulus) + landings(vCurrHigh, modulus);
+            position = modulus.floorMod(vCurrHigh.lane(SPECIES.length() - 1));
+        }
+
+        for (; i < to; i++) {
+            position = modulus.floorMod((long) position + steps[i]);
+            if (position == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts every time the dial passes through zero while executing the
+     * 16-bit steps in {@code [from, to)}.
+     */
+    static long countCrossings(short[] steps, int from, int to, int startPosition, DialModulus modulus) {
+        long count = 0;
+        int position = modulus.floorMod(startPosition);
+        short limit = narrowLimit(modulus);
+        int i = from;
+        int loopBound = from + narrowLoopBound(to - from, modulus);
+
+        for (; i < loopBound; i += NARROW_SPECIES.length()) {
+            ShortVector vStep = ShortVector.fromArray(NARROW_SPECIES, steps, i);
+            IntVector vStepLow = widen(vStep, 0);
+            IntVector vStepHigh = widen(vStep, 1);
+            IntVector[] vCurr = positions(vStep, position, limit);
+            IntVector vCurrLow = vCurr[0];
+            IntVector vCurrHigh = vCurr[1];
+            count += crossings(vStepLow, vCurrLow, modulus) + crossings(vStepHigh, vCurrHigh, modulus);
+            position = modulus.floorMod(vCurrHigh.lane(SPECIES.length() - 1));
+        }
+
+        for (; i < to; i++) {
+            count += crossings(position, steps[i], modulus);
+            position = modulus.floorMod((long) position + steps[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Counts both rules over the 16-bit steps in {@code [from, to)} in one
+     * pass, starting from {@code result.position()}, and adds them to
+     * {@code result}.
+     */
+    static void countBoth(short[] steps, int from, int to, DialModulus modulus, SimulationResult result) {
+        long landed = 0;
+        long crossed = 0;
+        int position = modulus.floorMod(result.position());
+        short limit = narrowLimit(modulus);
+        int i = from;
+        int loopBound = from + narrowLoopBound(to - from, modulus);
+
+        for (; i < loopBound; i += NARROW_SPECIES.length()) {
+            ShortVector vStep = ShortVector.fromArray(NARROW_SPECIES, steps, i);
+            IntVector vStepLow = widen(vStep, 0);
+            IntVector vStepHigh = widen(vStep, 1);
+            IntVector[] vCurr = positions(vStep, position, limit);
+            IntVector vCurrLow = vCurr[0];
+            IntVector vCurrHigh = vCurr[1];
+            landed += landings(vCurrLow, modulus) + landings(vCurrHigh, modulus);
+            crossed += crossings(vStepLow, vCurrLow, modulus) + crossings(vStepHigh, vCurrHigh, modulus);
+            position = modulus.floorMod(vCurrHigh.lane(SPECIES.length() - 1));
+        }
+
+        for (; i < to; i++) {
+            crossed += crossings(position, steps[i], modulus);
+            position = modulus.floorMod((long) position + steps[i]);
+            if (position == 0) {
+                landed++;
+            }
+        }
+        result.add(landed, crossed, to - from, position);
+    }
+
+    /**
+     * @return The {@code int[]} behind a heap segment, or {@code null} for
+     *         native memory.
+     * @throws IllegalArgumentException If a heap segment is not an
+     *                                  {@code int[]} viewed from its first
+     *                                  element, as by
+     *                                  {@link MemorySegment#ofArray(int[])}.
+     */
+    static int[] heapArray(MemorySegment steps) {
+        Object base = steps.heapBase().orElse(null);
+        if (base == null) {
+            return null;
+        }
+        // Indexing the array at an offset defeats the loads' bounds check elimination
+        if (base instanceof int[] array && steps.address() == 0) {
+            return array;
+        }
+        throw new IllegalArgumentException("Heap steps must be an int[] segment starting at its first element");
+    }
+
+    /**
+     * Loads the vector of {@code int} steps starting at step {@code index}.
+     *
+     * @param heap The segment's {@link #heapArray(MemorySegment)}.
+     */
+    static IntVector load(MemorySegment steps, int[] heap, long index) {
+        return (heap != null)
+                ? IntVector.fromArray(SPECIES, heap, (int) index)
+                : IntVector.fromMemorySegment(SPECIES, steps, index * Integer.BYTES, ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Derives the positions after each of the 16-bit steps in {@code vStep},
+     * starting from {@code position}, as the low and high halves widened to
+     * 32 bits. The prefix is summed in 16 bits when {@code limit} guarantees it
+     * cannot overflow, and over the widened steps otherwise.
+     */
+    private static IntVector[] positions(ShortVector vStep, int position, short limit) {
+        if (!fitsNarrow(vStep, limit)) {
+            IntVector vCurrLow = ParallelPrefixScan.inclusivePrefix(widen(vStep, 0)).add(position);
+            IntVector vCurrHigh = ParallelPrefixScan.inclusivePrefix(widen(vStep, 1))
+                    .add(vCurrLow.lane(SPECIES.length() - 1));
+            return new IntVector[] { vCurrLow, vCurrHigh };
+        }
+        ShortVector vCurr = ParallelPrefixScan.inclusivePrefix(vStep).add((short) position);
+        return new IntVector[] { widen(vCurr, 0), widen(vCurr, 1) };
+    }
+
+    /**
+     * The largest step magnitude for which the positions after one vector of
+     * {@code int} steps, from a start position below the modulus, stay inside
+     * {@link DialModulus#RANGE}.
+     */
+    static int wideLimit(DialModulus modulus) {
+        return (DialModulus.RANGE - modulus.modulus()) / SPECIES.length();
+    }
+
+    /**
+     * @return How many of {@code length} {@code int} steps to count in
+     *         vectors: none when the modulus alone leaves no headroom below
+     *         {@link DialModulus#RANGE}.
+     */
+    static long wideLoopBound(long length, int limit) {
+        return (limit >= 0) ? SPECIES.loopBound(length) : 0;
+    }
+
+    /**
+     * @return {@code true} if every lane lies in {@code [-limit, limit]}, for
+     *         a non-negative {@code limit}.
+     */
+    static boolean fitsWide(IntVector vStep, int limit) {
+        return !vStep.compare(VectorOperators.GT, limit).or(vStep.compare(VectorOperators.LT, -limit)).anyTrue();
+    }
+
+    /**
+     * @return How many of {@code length} 16-bit steps to count in vectors.
+     *         The widened positions after a vector of any {@code short} steps
+     *         stay inside {@link DialModulus#RANGE} unless the modulus is close
+     *         to it; then every step is counted by the scalar loop.
+     */
+    private static int narrowLoopBound(int length, DialModulus modulus) {
+        boolean fits = modulus.modulus() <= DialModulus.RANGE - NARROW_SPECIES.length() * (Short.MAX_VALUE + 1);
+        return fits ? NARROW_SPECIES.loopBound(length) : 0;
+    }
+
+    /**
+     * The largest step magnitude for which a 16-bit prefix sum over one vector,
+     * plus a start position below the modulus, cannot overflow. {@code -1}
+     * when the modulus alone leaves no headroom, so every vector is widened.
+     */
+    private static short narrowLimit(DialModulus modulus) {
+        return (short) Math.max(-1, (Short.MAX_VALUE + 1 - modulus.modulus()) / NARROW_SPECIES.length());
+    }
+
+    /**
+     * @return {@code true} if every lane lies in {@code [-limit, limit]}.
+     */
+    private static boolean fitsNarrow(ShortVector vStep, short limit) {
+        return !vStep.compare(VectorOperators.GT, limit)
+                .or(vStep.compare(VectorOperators.LT, (short) -limit))
+                .anyTrue();
+    }
+
+    private static IntVector widen(ShortVector v, int part) {
+        return (IntVector) v.convertShape(VectorOperators.S2I, SPECIES, part);
+    }
+
+    /**
+     * Counts the lanes of {@code vCurr} (absolute positions) that sit on zero.
+     */
+    private static int landings(IntVector vCurr, DialModulus modulus) {
+        VectorMask<Integer> mask = modulus.floorMod(vCurr).eq(0);
+        return mask.trueCount();
+    }
+
+    /**
+     * Counts the zero crossings of a vector of steps that end at the absolute
+     * positions {@code vCurr}.
+     */
+    private static int crossings(IntVector vStep, IntVector vCurr, DialModulus modulus) {
+        IntVector vPrev = vCurr.sub(vStep);
+
+        // Calculate floorDiv(vCurr, m) and floorDiv(vPrev, m)
+        IntVector vFloorCurr = modulus.floorDiv(vCurr);
+        IntVector vFloorPrev = modulus.floorDiv(vPrev);
+
+        // Calculate floorDiv(vCurr - 1, m) and floorDiv(vPrev - 1, m) for negative
+        // steps
+        IntVector vFloorCurrMinus1 = modulus.floorDiv(vCurr.sub(1));
+        IntVector vFloorPrevMinus1 = modulus.floorDiv(vPrev.sub(1));
+
+        // Hits if step > 0: floor(curr/m) - floor(prev/m)
+        IntVector hitsPos = vFloorCurr.sub(vFloorPrev);
+
+        // Hits if step < 0: floor((prev-1)/m) - floor((curr-1)/m)
+        IntVector hitsNeg = vFloorPrevMinus1.sub(vFloorCurrMinus1);
+
+        // Select based on step direction
+        VectorMask<Integer> maskNeg = vStep.compare(VectorOperators.LT, 0);
+        return hitsPos.blend(hitsNeg, maskNeg).reduceLanes(VectorOperators.ADD);
+    }
+
+    /**
+     * Counts the zero crossings of a single step from {@code position}.
+     */
+    private static long crossings(int position, int step, DialModulus modulus) {
+        long curr = (long) position + step;
+        if (step > 0) {
+            return modulus.floorDiv(curr) - modulus.floorDiv(position);
+        } else if (step < 0) {
+            return modulus.floorDiv(position - 1) - modulus.floorDiv(curr - 1);
+        }
+        return 0;
+    }
+}
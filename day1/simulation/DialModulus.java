@@ -0,0 +1,133 @@
+package day1.simulation;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Division-free floor division and modulus by a fixed dial size.
+ *
+ * <p>
+ * {@code IntVector.div} has no hardware SIMD equivalent on x86 and falls back
+ * to per-lane scalar division. Instead, the divisor is turned once into a
+ * multiply-high constant and a shift (Granlund-Montgomery round-up method):
+ * for every {@code u} in {@code [0, 2^31)},
+ * {@code u / m == (u * magic) >>> shift}. Signed inputs are first biased by a
+ * multiple of {@code m} so the product rule applies, and the 32x32 -> 64 bit
+ * multiply is done in long lanes, so the whole reduction stays vectorized for
+ * any modulus.
+ *
+ * <p>
+ * The multiply-high reduction holds for inputs in {@code [-2^29, 2^29)}. The
+ * scalar methods fall back to {@link Math#floorDiv(long, long)} outside that
+ * range, so they are exact for any input. The vector methods are not checked:
+ * callers must keep every lane inside {@link #RANGE}, as the dial kernels do
+ * by bounding the steps of each vector before summing them.
+ */
+public final class DialModulus {
+
+    public static final DialModulus DEFAULT = new DialModulus(DialTransition.DIAL_SIZE);
+
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+    // Same vector size as INT_SPECIES, so it holds exactly half as many lanes
+    private static final VectorSpecies<Long> LONG_SPECIES = VectorSpecies.of(long.class,
+            INT_SPECIES.vectorShape());
+
+    /**
+     * The vector methods are exact for lanes in {@code [-RANGE, RANGE)}.
+     */
+    public static final int RANGE = 1 << 29;
+
+    private static final int BITS = 31;
+
+    private final int modulus;
+    private final long magic;
+    private final int shift;
+    // A multiple of the modulus that makes every supported input non-negative
+    private final int bias;
+    private final int biasQuotient;
+
+    public DialModulus(int modulus) {
+        if (modulus <= 0 || modulus > (1 << 30)) {
+            throw new IllegalArgumentException("Modulus must be in [1, 2^30]: " + modulus);
+        }
+        this.modulus = modulus;
+
+        // l = ceil(log2(m)); magic = ceil(2^(31 + l) / m) fits in 33 bits, and
+        // u * magic < 2^63 for every u < 2^31
+        int l = 32 - Integer.numberOfLeadingZeros(modulus - 1);
+        this.shift = BITS + l;
+        this.magic = ((1L << shift) + modulus - 1) / modulus;
+
+        // bias = ceil(2^29 / m) * m, so x + bias is in [0, 2^31) for every x in range
+        this.biasQuotient = (RANGE + modulus - 1) / modulus;
+        this.bias = biasQuotient * modulus;
+    }
+
+    /**
+     * @return The dial size.
+     */
+    public int modulus() {
+        return modulus;
+    }
+
+    /**
+     * @return {@code Math.floorDiv(x, modulus)}.
+     */
+    public int floorDiv(int x) {
+        return (int) floorDiv((long) x);
+    }
+
+    /**
+     * @return {@code Math.floorDiv(x, modulus)}.
+     */
+    public long floorDiv(long x) {
+        if (x < -RANGE || x >= RANGE) {
+            return Math.floorDiv(x, modulus);
+        }
+        long u = x + bias;
+        return ((u * magic) >>> shift) - biasQuotient;
+    }
+
+    /**
+     * @return {@code Math.floorMod(x, modulus)}.
+     */
+    public int floorMod(int x) {
+        return floorMod((long) x);
+    }
+
+    /**
+     * @return {@code Math.floorMod(x, modulus)}.
+     */
+    public int floorMod(long x) {
+        return (int) (x - floorDiv(x) * modulus);
+    }
+
+    /**
+     * Lane-wise {@code Math.floorDiv(v, modulus)}, for lanes in
+     * {@code [-RANGE, RANGE)}.
+     */
+    public IntVector floorDiv(IntVector v) {
+        IntVector u = v.add(bias);
+
+        // Widen each half to long lanes for the 32x32 -> 64 bit multiply
+        LongVector low = (LongVector) u.convertShape(VectorOperators.I2L, LONG_SPECIES, 0);
+        LongVector high = (LongVector) u.convertShape(VectorOperators.I2L, LONG_SPECIES, 1);
+        low = low.mul(magic).lanewise(VectorOperators.LSHR, shift);
+        high = high.mul(magic).lanewise(VectorOperators.LSHR, shift);
+
+        // Narrow back: part 0 fills the lower lanes and part -1 the upper lanes
+        IntVector quotient = ((IntVector) low.convertShape(VectorOperators.L2I, INT_SPECIES, 0))
+                .or((IntVector) high.convertShape(VectorOperators.L2I, INT_SPECIES, -1));
+        return quotient.sub(biasQuotient);
+    }
+
+    /**
+     * Lane-wise {@code Math.floorMod(v, modulus)}, for lanes in
+     * {@code [-RANGE, RANGE)}.
+     */
+    public IntVector floorMod(IntVector v) {
+        return v.sub(floorDiv(v).mul(modulus));
+    }
+}
@@ -4,26 +4,66 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import java.util.Optional;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.lang.foreign.Arena;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Service to coordinate the dial simulation.
  * Uses the Builder pattern for configuration.
+ *
+ * <p>
+ * By default the whole file is parsed into a single step array before the
+ * strategy runs. In streaming mode the file is parsed and simulated one
+ * fixed-size block at a time, so memory use stays constant regardless of the
+ * input size.
+ *
+ * <p>
+ * With the step cache enabled, the file is loaded through its compiled
+ * {@link StepCache}, so repeated runs over an unchanged file skip parsing.
+ * With the step index enabled, {@link #run(SimulationResult)} folds the block
+ * summaries of a {@link StepIndex} and only parses what was appended since.
+ *
+ * <p>
+ * The dial has 100 positions unless another {@link Builder#modulus(int)} is
+ * set; a {@link VectorizedSimulationStrategy} must then be built for the same
+ * dial size.
+ *
+ * <p>
+ * An optional {@link Builder#listener(SimulationListener)} receives the read
+ * and parse times of the file and is passed on to the strategy for the rest.
  */
 public class DialSimulator {
     private static final Logger logger = LogManager.getLogger(DialSimulator.class);
+    private static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
     private final String filePath;
     private final int initialPosition;
     private final SimulationStrategy strategy;
+    private final boolean streaming;
+    private final boolean stepCache;
+    private final boolean stepIndex;
+    private final int blockSize;
+    private final DialModulus modulus;
+    private final SimulationListener listener;
 
     private DialSimulator(Builder builder) {
         this.filePath = builder.filePath;
         this.initialPosition = builder.initialPosition;
         this.strategy = builder.strategy;
+        this.streaming = builder.streaming;
+        this.stepCache = builder.stepCache;
+        this.stepIndex = builder.stepIndex;
+        this.blockSize = builder.blockSize;
+        this.modulus = new DialModulus(builder.modulus);
+        this.listener = builder.listener;
     }
 
     /**
@@ -33,35 +73,245 @@ public class DialSimulator {
      *         error occurred.
      */
     public Optional<Integer> run() {
+        if (stepIndex) {
+            throw new IllegalStateException("The step index counts both rules; use run(SimulationResult).");
+        }
         logger.info("Starting simulation...");
         logger.info("Reading file: {}", filePath);
 
-        List<Integer> stepsList = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                int steps = Integer.parseInt(line.substring(1));
-                if (line.startsWith("L")) {
-                    stepsList.add(-steps);
-                } else {
-                    stepsList.add(steps);
+        if (streaming) {
+            return runStreaming();
+        }
+        if (stepCache) {
+            return runCached();
+        }
+
+        int[] allSteps;
+        try {
+            allSteps = readAllSteps();
+        } catch (IOException e) {
+            logger.error("Error reading file", e);
+            return Optional.empty();
+        }
+
+        logger.info("File read successfully. Total steps: {}", allSteps.length);
+
+        return strategy.run(allSteps, initialPosition, listener);
+    }
+
+    /**
+     * Runs the simulation into {@code result}, which is first reset to the
+     * initial position. Both rules are counted as {@code long}, and the final
+     * dial position is left in the result. In streaming mode every block
+     * continues from the position the previous block left behind.
+     *
+     * @param result The result to fill.
+     * @return {@code true} if the run completed, {@code false} if an error
+     *         occurred.
+     */
+    public boolean run(SimulationResult result) {
+        logger.info("Starting simulation...");
+        logger.info("Reading file: {}", filePath);
+        result.reset(initialPosition);
+
+        try {
+            if (streaming) {
+                int[] block = new int[blockSize];
+                try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+                    StepBlockReader reader = new StepBlockReader(channel, READ_BUFFER_SIZE, modulus);
+                    int count;
+                    while ((count = reader.read(block)) > 0) {
+                        int[] steps = (count == block.length) ? block : Arrays.copyOf(block, count);
+                        if (!strategy.run(steps, result)) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }
+            if (stepCache) {
+                try (Arena arena = Arena.ofShared()) {
+                    OffHeapSteps steps = StepCache.load(Path.of(filePath), arena, ForkJoinPool.commonPool());
+                    if (strategy instanceof VectorizedSimulationStrategy vectorized) {
+                        return vectorized.run(steps, result);
+                    }
+                    return strategy.run(
+                            steps.segment().asSlice(0, steps.count() * Integer.BYTES).toArray(ValueLayout.JAVA_INT),
+                            result);
+                }
+            }
+            if (stepIndex) {
+                StepIndex index = StepIndex.update(Path.of(filePath), blockSize);
+                index.fold(result);
+                logger.info("Folded {} indexed blocks, simulating the tail", index.blockCount());
+                return strategy.run(readSteps(index.indexedBytes()), result);
+            }
+            return strategy.run(readAllSteps(), result);
+        } catch (IOException e) {
+            logger.error("Error reading file", e);
+            return false;
+        }
+    }
+
+    /**
+     * Parses and simulates the file one block of steps at a time. The dial
+     * position at the end of each block becomes the start position of the next,
+     * so the count matches a run over the fully materialized step list.
+     */
+    private Optional<Integer> runStreaming() {
+        boolean timed = listener != SimulationListener.NONE;
+        int[] block = new int[blockSize];
+        int position = initialPosition;
+        long totalZeroes = 0;
+        long totalSteps = 0;
+        long readNanos = 0;
+
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            StepBlockReader reader = new StepBlockReader(channel, READ_BUFFER_SIZE, modulus);
+            int count;
+            while (true) {
+                long started = timed ? System.nanoTime() : 0;
+                count = reader.read(block);
+                if (timed) {
+                    readNanos += System.nanoTime() - started;
                 }
+                if (count <= 0) {
+                    break;
+                }
+                // Only the final, partial block needs a right-sized copy
+                int[] steps = (count == block.length) ? block : Arrays.copyOf(block, count);
+                Optional<Integer> blockResult = strategy.run(steps, position, listener);
+                if (blockResult.isEmpty()) {
+                    return Optional.empty();
+                }
+                totalZeroes += blockResult.get();
+                totalSteps += count;
+                position = (int) Math.floorMod(position + reader.netDisplacement(), (long) modulus.modulus());
             }
         } catch (IOException e) {
             logger.error("Error reading file", e);
             return Optional.empty();
         }
 
-        int[] allSteps = stepsList.stream().mapToInt(i -> i).toArray();
-        logger.info("File read successfully. Total steps: {}", allSteps.length);
+        // Blocks are read and parsed together, so both count as reading
+        if (timed) {
+            listener.onPhase(SimulationListener.Phase.READ, readNanos);
+        }
+        logger.info("File streamed successfully. Total steps: {}", totalSteps);
+        return VectorizedSimulationStrategy.intCount(totalZeroes);
+    }
+
+    /**
+     * Loads the steps through the compiled step cache. A
+     * {@link VectorizedSimulationStrategy} counts the mapped steps in place;
+     * any other strategy gets a heap copy, which still skips parsing.
+     */
+    private Optional<Integer> runCached() {
+        try (Arena arena = Arena.ofShared()) {
+            long started = (listener == SimulationListener.NONE) ? 0 : System.nanoTime();
+            OffHeapSteps steps = StepCache.load(Path.of(filePath), arena, ForkJoinPool.commonPool());
+            if (listener != SimulationListener.NONE) {
+                listener.onPhase(SimulationListener.Phase.READ, System.nanoTime() - started);
+            }
+            logger.info("Steps loaded successfully. Total steps: {}", steps.count());
+
+            if (strategy instanceof VectorizedSimulationStrategy vectorized) {
+                return vectorized.run(steps, initialPosition, listener)
+                        .flatMap(VectorizedSimulationStrategy::intCount);
+            }
+            int[] allSteps = steps.segment().asSlice(0, steps.count() * Integer.BYTES).toArray(ValueLayout.JAVA_INT);
+            return strategy.run(allSteps, initialPosition, listener);
+        } catch (IOException e) {
+            logger.error("Error reading file", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Answers both counting rules for every start position (0-99) in a single
+     * scan of the file. The configured initial position and strategy are not
+     * used; streaming mode is honored. Only the 100-position dial is supported.
+     *
+     * @return An Optional containing the per-start answers, or empty if an error
+     *         occurred.
+     */
+    public Optional<StartPositionSweep> sweepStartPositions() {
+        if (modulus.modulus() != DialTransition.DIAL_SIZE) {
+            throw new IllegalStateException("Start position sweeps require a dial of " + DialTransition.DIAL_SIZE);
+        }
+        logger.info("Sweeping all start positions for file: {}", filePath);
+        StartPositionSweep sweep = new StartPositionSweep();
 
-        return strategy.run(allSteps, initialPosition);
+        try {
+            if (streaming) {
+                int[] block = new int[blockSize];
+                try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+                    StepBlockReader reader = new StepBlockReader(channel, READ_BUFFER_SIZE);
+                    int count;
+                    while ((count = reader.read(block)) > 0) {
+                        sweep.accept(block, 0, count);
+                    }
+                }
+            } else {
+                int[] allSteps = readAllSteps();
+                sweep.accept(allSteps, 0, allSteps.length);
+            }
+        } catch (IOException e) {
+            logger.error("Error reading file", e);
+            return Optional.empty();
+        }
+
+        return Optional.of(sweep);
+    }
+
+    private int[] readAllSteps() throws IOException {
+        if (listener == SimulationListener.NONE) {
+            byte[] bytes = Files.readAllBytes(Path.of(filePath));
+            return tokenize(bytes);
+        }
+        long started = System.nanoTime();
+        byte[] bytes = Files.readAllBytes(Path.of(filePath));
+        long read = System.nanoTime();
+        listener.onPhase(SimulationListener.Phase.READ, read - started);
+        int[] steps = tokenize(bytes);
+        long parsed = System.nanoTime();
+        listener.onChunk(SimulationListener.Phase.PARSE, 0, bytes.length, parsed - read);
+        listener.onPhase(SimulationListener.Phase.PARSE, parsed - read);
+        return steps;
+    }
+
+    /**
+     * Reads and parses the steps from byte {@code offset} to the end of the
+     * file.
+     */
+    private int[] readSteps(long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            ByteBuffer tail = ByteBuffer.allocate(Math.toIntExact(channel.size() - offset));
+            while (tail.hasRemaining()) {
+                if (channel.read(tail, offset + tail.position()) < 0) {
+                    break;
+                }
+            }
+            return tokenize(Arrays.copyOf(tail.array(), tail.position()));
+        }
+    }
+
+    private static int[] tokenize(byte[] bytes) {
+        int[] parsed = new int[(bytes.length + 1) / 2];
+        int count = StepTokenizer.tokenize(bytes, 0, bytes.length, parsed, 0);
+        return Arrays.copyOf(parsed, count);
     }
 
     public static class Builder {
         private String filePath;
         private int initialPosition = 0;
         private SimulationStrategy strategy;
+        private boolean streaming = false;
+        private boolean stepCache = false;
+        private boolean stepIndex = false;
+        private int blockSize = DEFAULT_BLOCK_SIZE;
+        private int modulus = DialTransition.DIAL_SIZE;
+        private SimulationListener listener = SimulationListener.NONE;
 
         public Builder filePath(String filePath) {
             this.filePath = filePath;
@@ -78,6 +328,70 @@ public class DialSimulator {
             return this;
         }
 
+        /**
+         * Enables streaming mode, where parsing and counting happen block by
+         * block instead of over a fully materialized step list.
+         */
+        public Builder streaming(boolean streaming) {
+            this.streaming = streaming;
+            return this;
+        }
+
+        /**
+         * Loads the file through its compiled {@link StepCache}, writing the
+         * cache next to the file when it is missing or stale.
+         */
+        public Builder stepCache(boolean stepCache) {
+            this.stepCache = stepCache;
+            return this;
+        }
+
+        /**
+         * Keeps a {@link StepIndex} next to the file, so
+         * {@link DialSimulator#run(SimulationResult)} only parses the steps
+         * appended since the last run. The index uses the configured block
+         * size.
+         */
+        public Builder stepIndex(boolean stepIndex) {
+            this.stepIndex = stepIndex;
+            return this;
+        }
+
+        /**
+         * Sets the number of steps per block in streaming mode, and per
+         * summary in the step index.
+         */
+        public Builder blockSize(int blockSize) {
+            this.blockSize = blockSize;
+            return this;
+        }
+
+        /**
+         * Sets the number of positions on the dial (default 100). It must
+         * match the strategy's {@link SimulationStrategy#modulus()}.
+         */
+        public Builder modulus(int modulus) {
+            this.modulus = modulus;
+            return this;
+        }
+
+        /**
+         * Lets an {@link AdaptiveSimulationStrategy} on the common pool pick
+         * the implementation for every run, instead of a fixed strategy.
+         */
+        public Builder adaptive(VectorizedSimulationStrategy.SimulationType type) {
+            this.strategy = new AdaptiveSimulationStrategy(type, ForkJoinPool.commonPool());
+            return this;
+        }
+
+        /**
+         * Sets a listener for the timings of every run (default: none).
+         */
+        public Builder listener(SimulationListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
         public DialSimulator build() {
             if (filePath == null) {
                 throw new IllegalStateException("File path must be set.");
@@ -85,6 +399,28 @@ public class DialSimulator {
             if (strategy == null) {
                 throw new IllegalStateException("Strategy must be set.");
             }
+            if (blockSize <= 0) {
+                throw new IllegalStateException("Block size must be positive.");
+            }
+            if (listener == null) {
+                throw new IllegalStateException("Listener must not be null; use SimulationListener.NONE.");
+            }
+            if (streaming && stepCache) {
+                throw new IllegalStateException("Streaming and the step cache cannot be combined.");
+            }
+            if (stepIndex && (streaming || stepCache)) {
+                throw new IllegalStateException("The step index cannot be combined with streaming or the step cache.");
+            }
+            if (stepIndex && modulus != DialTransition.DIAL_SIZE) {
+                throw new IllegalStateException("The step index requires a dial of " + DialTransition.DIAL_SIZE + ".");
+            }
+            if (modulus <= 0 || modulus > (1 << 30)) {
+                throw new IllegalStateException("Modulus must be in [1, 2^30].");
+            }
+            if (strategy.modulus() != modulus) {
+                throw new IllegalStateException("Strategy modulus " + strategy.modulus()
+                        + " does not match the dial modulus " + modulus + ".");
+            }
             return new DialSimulator(this);
         }
     }
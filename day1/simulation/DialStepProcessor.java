@@ -0,0 +1,114 @@
+package day1.simulation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Simulates a live feed of step batches and publishes the running totals.
+ *
+ * <p>
+ * The processor subscribes to an upstream {@link Flow.Publisher} of
+ * {@code int[]} batches and never has more than {@code demand} batches
+ * requested at a time: it asks for one more only after a batch has been
+ * counted and its totals handed downstream. Each batch continues from the
+ * position the previous one left in a {@link SimulationResult}, so only the
+ * current batch is ever held in memory.
+ *
+ * <p>
+ * Totals are published through a {@link SubmissionPublisher} with a bounded
+ * buffer per subscriber. A subscriber that falls behind blocks publishing,
+ * which in turn stops the upstream requests, so backpressure reaches the
+ * source instead of building up in between.
+ */
+public class DialStepProcessor extends SubmissionPublisher<DialStepProcessor.Totals>
+        implements Flow.Processor<int[], DialStepProcessor.Totals> {
+
+    private static final Logger logger = LogManager.getLogger(DialStepProcessor.class);
+    private static final int DEFAULT_DEMAND = 4;
+
+    /**
+     * The running totals after a batch.
+     *
+     * @param stepCount The steps counted so far.
+     * @param landings  The steps so far that ended exactly on zero (Part 1).
+     * @param crossings The times the dial has passed through zero (Part 2).
+     * @param position  The current dial position.
+     */
+    public record Totals(long stepCount, long landings, long crossings, int position) {
+    }
+
+    private final SimulationStrategy strategy;
+    private final SimulationResult result;
+    private final int demand;
+    private Flow.Subscription subscription;
+
+    /**
+     * Creates a processor that counts batches with the SIMD kernels, handing
+     * large batches to the common pool.
+     *
+     * @param initialPosition The dial position before the first batch.
+     */
+    public DialStepProcessor(int initialPosition) {
+        this(new VectorizedSimulationStrategy(VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO,
+                ForkJoinPool.commonPool()), initialPosition, DEFAULT_DEMAND, ForkJoinPool.commonPool(),
+                Flow.defaultBufferSize());
+    }
+
+    /**
+     * @param strategy          The strategy that counts each batch.
+     * @param initialPosition   The dial position before the first batch.
+     * @param demand            The most batches requested from upstream at once.
+     * @param executor          The executor that delivers totals downstream.
+     * @param maxBufferCapacity The most totals buffered per subscriber.
+     */
+    public DialStepProcessor(SimulationStrategy strategy, int initialPosition, int demand, Executor executor,
+            int maxBufferCapacity) {
+        super(executor, maxBufferCapacity);
+        if (demand <= 0) {
+            throw new IllegalArgumentException("Demand must be positive: " + demand);
+        }
+        this.strategy = strategy;
+        this.result = new SimulationResult(initialPosition);
+        this.demand = demand;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            // Only one upstream at a time
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(demand);
+    }
+
+    @Override
+    public void onNext(int[] steps) {
+        if (!strategy.run(steps, result)) {
+            subscription.cancel();
+            closeExceptionally(new IllegalStateException("Simulation failed after " + result.stepCount() + " steps"));
+            return;
+        }
+        // Blocks while a subscriber's buffer is full, which holds back the next request
+        submit(new Totals(result.stepCount(), result.landings(), result.crossings(), result.position()));
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        logger.error("Step feed failed", throwable);
+        closeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        logger.info("Step feed completed. Total steps: {}", result.stepCount());
+        close();
+    }
+}
@@ -0,0 +1,122 @@
+package day1.simulation;
+
+/**
+ * Summary of how a sequence of steps moves the dial, for every possible start
+ * position at once.
+ *
+ * <p>
+ * {@code hits[s]} is the number of steps that end exactly on zero when the
+ * sequence starts at position {@code s}, and {@code delta} is the net change in
+ * position (mod 100). Transitions form a monoid under {@link #merge}, so any
+ * split of the steps can be summarized independently and combined in order.
+ */
+public final class DialTransition {
+
+    public static final int DIAL_SIZE = 100;
+
+    public static final DialTransition IDENTITY = new DialTransition(new long[DIAL_SIZE], 0);
+
+    // hits[i] = number of times we hit 0 starting from position i
+    private final long[] hits;
+    // delta = net change in position (modulo 100)
+    private final int delta;
+
+    private DialTransition(long[] hits, int delta) {
+        this.hits = hits;
+        this.delta = delta;
+    }
+
+    /**
+     * Creates the transition of a single step.
+     */
+    public static DialTransition of(int step) {
+        long[] hits = new long[DIAL_SIZE];
+        int delta = Math.floorMod(step, DIAL_SIZE);
+        // Only the start that is `delta` short of a full turn lands on zero
+        hits[(DIAL_SIZE - delta) % DIAL_SIZE] = 1;
+        return new DialTransition(hits, delta);
+    }
+
+    /**
+     * Rebuilds a transition from the per-start hits and net displacement
+     * of a summary computed elsewhere, such as a {@link StartPositionSweep}.
+     */
+    static DialTransition of(long[] hits, int delta) {
+        if (hits.length != DIAL_SIZE || delta < 0 || delta >= DIAL_SIZE) {
+            throw new IllegalArgumentException(
+                    "Expected " + DIAL_SIZE + " counts and a delta in [0, " + DIAL_SIZE + ")");
+        }
+        return new DialTransition(hits.clone(), delta);
+    }
+
+    /**
+     * Parses a transition from a line such as "L50" or "R100".
+     */
+    public static DialTransition parse(String line) {
+        int steps = Integer.parseInt(line.substring(1));
+        return of(line.startsWith("L") ? -steps : steps);
+    }
+
+    /**
+     * Summarizes {@code steps[from, to)} in O(length + 100).
+     *
+     * <p>
+     * A step ends on zero from start {@code s} exactly when the prefix sum up to
+     * that step is congruent to {@code -s}, so a histogram of prefix-sum
+     * residues gives the hits for every start at once.
+     */
+    public static DialTransition ofSteps(int[] steps, int from, int to) {
+        long[] residues = new long[DIAL_SIZE];
+        int position = 0;
+        for (int i = from; i < to; i++) {
+            position = Math.floorMod(position + steps[i], DIAL_SIZE);
+            residues[position]++;
+        }
+
+        long[] hits = new long[DIAL_SIZE];
+        for (int start = 0; start < DIAL_SIZE; start++) {
+            hits[start] = residues[(DIAL_SIZE - start) % DIAL_SIZE];
+        }
+        return new DialTransition(hits, position);
+    }
+
+    /**
+     * Merges two transitions: first then second.
+     *
+     * <p>
+     * new_hits[s] = first.hits[s] + second.hits[(s + first.delta) % 100]
+     * new_delta = (first.delta + second.delta) % 100
+     */
+    public static DialTransition merge(DialTransition first, DialTransition second) {
+        if (first == IDENTITY)
+            return second;
+        if (second == IDENTITY)
+            return first;
+
+        int newDelta = (first.delta + second.delta) % DIAL_SIZE;
+        long[] newHits = new long[DIAL_SIZE];
+
+        for (int i = 0; i < DIAL_SIZE; i++) {
+            // Hits from first part + hits from second part (starting where first part
+            // ended)
+            newHits[i] = first.hits[i] + second.hits[(i + first.delta) % DIAL_SIZE];
+        }
+
+        return new DialTransition(newHits, newDelta);
+    }
+
+    /**
+     * @return The number of steps that end on zero when starting from
+     *         {@code startPosition}.
+     */
+    public long hits(int startPosition) {
+        return hits[Math.floorMod(startPosition, DIAL_SIZE)];
+    }
+
+    /**
+     * @return The net change in position, in {@code [0, 100)}.
+     */
+    public int delta() {
+        return delta;
+    }
+}
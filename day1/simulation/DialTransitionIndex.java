@@ -0,0 +1,318 @@
+package day1.simulation;
+
+import java.util.SplittableRandom;
+
+/**
+ * Editable index over a step sequence that keeps the {@link DialTransition}
+ * of the whole sequence up to date.
+ *
+ * <p>
+ * Steps are stored in small blocks, and the blocks are the nodes of a balanced
+ * tree (an implicit treap ordered by position). Every node caches the
+ * transition of its subtree, so editing, inserting or deleting one step only
+ * re-merges the transitions on a single root-to-block path: O(log n * 100)
+ * instead of a full rescan. Full blocks are split in two and empty blocks are
+ * dropped, which keeps every block between 1 and {@code 2 * BLOCK_SIZE} steps.
+ */
+public final class DialTransitionIndex {
+
+    /** Target number of steps per block when building the index. */
+    private static final int BLOCK_SIZE = 64;
+
+    private final SplittableRandom random = new SplittableRandom(0x5EED);
+    private Node root;
+
+    /**
+     * Builds an index over {@code steps} in O(n + (n / BLOCK_SIZE) * 100).
+     */
+    public DialTransitionIndex(int[] steps) {
+        int blockCount = (steps.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        Node[] spine = new Node[blockCount];
+        int spineSize = 0;
+
+        // Cartesian tree construction: blocks arrive in order, so each new block
+        // only ever attaches to the right spine
+        for (int b = 0; b < blockCount; b++) {
+            int from = b * BLOCK_SIZE;
+            Node node = new Node(steps, from, Math.min(from + BLOCK_SIZE, steps.length), random.nextInt());
+            Node last = null;
+            while (spineSize > 0 && spine[spineSize - 1].priority < node.priority) {
+                last = spine[--spineSize];
+            }
+            node.left = last;
+            if (spineSize > 0) {
+                spine[spineSize - 1].right = node;
+            }
+            spine[spineSize++] = node;
+        }
+
+        root = (spineSize > 0) ? spine[0] : null;
+        recomputeAll(root);
+    }
+
+    /**
+     * @return The number of steps in the index.
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * @return The transition of the whole step sequence.
+     */
+    public DialTransition summary() {
+        return (root == null) ? DialTransition.IDENTITY : root.summary;
+    }
+
+    /**
+     * @return The number of steps that end on zero when starting from
+     *         {@code initialPosition}.
+     */
+    public long landings(int initialPosition) {
+        return summary().hits(initialPosition);
+    }
+
+    /**
+     * @return The step at {@code index}.
+     */
+    public int get(int index) {
+        checkIndex(index, size());
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index < leftSize + node.length) {
+                return node.steps[index - leftSize];
+            } else {
+                index -= leftSize + node.length;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Replaces the step at {@code index}.
+     */
+    public void set(int index, int step) {
+        checkIndex(index, size());
+        update(root, index, Edit.SET, step);
+    }
+
+    /**
+     * Inserts a step so that it ends up at {@code index}; later steps shift up.
+     */
+    public void insert(int index, int step) {
+        checkIndex(index, size() + 1);
+        if (root == null) {
+            root = new Node(new int[] { step }, 0, 1, random.nextInt());
+            root.recompute();
+            return;
+        }
+        Overflow overflow = update(root, index, Edit.INSERT, step);
+        if (overflow != null) {
+            insertBlock(overflow.blockIndex + 1, overflow.node);
+        }
+    }
+
+    /**
+     * Removes and returns the step at {@code index}; later steps shift down.
+     */
+    public int remove(int index) {
+        checkIndex(index, size());
+        int removed = get(index);
+        Overflow emptied = update(root, index, Edit.REMOVE, 0);
+        if (emptied != null) {
+            removeBlock(emptied.blockIndex);
+        }
+        return removed;
+    }
+
+    private enum Edit {
+        SET, INSERT, REMOVE
+    }
+
+    /**
+     * Reports a structural change that {@link #update} could not make in
+     * place: a block split off by an insert, or a block emptied by a remove.
+     */
+    private static final class Overflow {
+        final int blockIndex;
+        final Node node;
+
+        Overflow(int blockIndex, Node node) {
+            this.blockIndex = blockIndex;
+            this.node = node;
+        }
+    }
+
+    /**
+     * Applies an edit to the block holding {@code index} and re-merges the
+     * transitions on the way back up.
+     */
+    private Overflow update(Node node, int index, Edit edit, int step) {
+        int leftSize = size(node.left);
+        Overflow overflow;
+
+        // An append lands at the end of the last block
+        boolean inBlock = index < leftSize + node.length
+                || (edit == Edit.INSERT && index == leftSize + node.length && node.right == null);
+
+        if (index < leftSize) {
+            overflow = update(node.left, index, edit, step);
+        } else if (inBlock) {
+            overflow = node.edit(index - leftSize, edit, step, random);
+            if (overflow != null) {
+                overflow = new Overflow(blocks(node.left), overflow.node);
+            }
+        } else {
+            overflow = update(node.right, index - leftSize - node.length, edit, step);
+            if (overflow != null) {
+                overflow = new Overflow(overflow.blockIndex + blocks(node.left) + 1, overflow.node);
+            }
+        }
+
+        node.recompute();
+        return overflow;
+    }
+
+    private void insertBlock(int blockIndex, Node block) {
+        Node[] parts = split(root, blockIndex);
+        root = merge(merge(parts[0], block), parts[1]);
+    }
+
+    private void removeBlock(int blockIndex) {
+        Node[] parts = split(root, blockIndex);
+        Node[] rest = split(parts[1], 1);
+        root = merge(parts[0], rest[1]);
+    }
+
+    /**
+     * Splits a subtree into its first {@code blockCount} blocks and the rest.
+     */
+    private static Node[] split(Node node, int blockCount) {
+        if (node == null) {
+            return new Node[] { null, null };
+        }
+        int leftBlocks = blocks(node.left);
+        if (blockCount <= leftBlocks) {
+            Node[] parts = split(node.left, blockCount);
+            node.left = parts[1];
+            node.recompute();
+            return new Node[] { parts[0], node };
+        }
+        Node[] parts = split(node.right, blockCount - leftBlocks - 1);
+        node.right = parts[0];
+        node.recompute();
+        return new Node[] { node, parts[1] };
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.recompute();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.recompute();
+        return right;
+    }
+
+    private static void recomputeAll(Node node) {
+        if (node == null) {
+            return;
+        }
+        recomputeAll(node.left);
+        recomputeAll(node.right);
+        node.recompute();
+    }
+
+    private static int size(Node node) {
+        return (node == null) ? 0 : node.size;
+    }
+
+    private static int blocks(Node node) {
+        return (node == null) ? 0 : node.blocks;
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + bound);
+        }
+    }
+
+    /**
+     * A block of consecutive steps and the cached summary of its subtree.
+     */
+    private static final class Node {
+        final int priority;
+        int[] steps;
+        int length;
+        DialTransition block;
+
+        Node left;
+        Node right;
+        int size;
+        int blocks;
+        DialTransition summary;
+
+        Node(int[] source, int from, int to, int priority) {
+            this.priority = priority;
+            this.steps = new int[2 * BLOCK_SIZE];
+            this.length = to - from;
+            System.arraycopy(source, from, steps, 0, length);
+            this.block = DialTransition.ofSteps(steps, 0, length);
+        }
+
+        /**
+         * Edits this block in place.
+         *
+         * @return A new block to link after this one if an insert filled the
+         *         block, this node if a remove emptied it, otherwise null.
+         */
+        Overflow edit(int offset, Edit edit, int step, SplittableRandom random) {
+            Overflow overflow = null;
+            switch (edit) {
+                case SET:
+                    steps[offset] = step;
+                    break;
+                case INSERT:
+                    System.arraycopy(steps, offset, steps, offset + 1, length - offset);
+                    steps[offset] = step;
+                    length++;
+                    if (length == steps.length) {
+                        // Move the upper half into a new block
+                        int half = length / 2;
+                        Node sibling = new Node(steps, half, length, random.nextInt());
+                        sibling.recompute();
+                        length = half;
+                        overflow = new Overflow(0, sibling);
+                    }
+                    break;
+                case REMOVE:
+                    System.arraycopy(steps, offset + 1, steps, offset, length - offset - 1);
+                    length--;
+                    if (length == 0) {
+                        overflow = new Overflow(0, this);
+                    }
+                    break;
+            }
+            block = DialTransition.ofSteps(steps, 0, length);
+            return overflow;
+        }
+
+        void recompute() {
+            size = DialTransitionIndex.size(left) + length + DialTransitionIndex.size(right);
+            blocks = DialTransitionIndex.blocks(left) + 1 + DialTransitionIndex.blocks(right);
+            DialTransition leftSummary = (left == null) ? DialTransition.IDENTITY : left.summary;
+            DialTransition rightSummary = (right == null) ? DialTransition.IDENTITY : right.summary;
+            summary = DialTransition.merge(DialTransition.merge(leftSummary, block), rightSummary);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package day1.simulation;
+
+import java.lang.foreign.MemorySegment;
+
+/**
+ * Stateful dial simulation that accepts steps in batches.
+ *
+ * <p>
+ * The counter keeps the current dial position and the running counts for
+ * both rules (landing on zero and passing through zero), so each
+ * {@link #append} costs O(batch) no matter how many steps came before. Batches
+ * are counted with the same fused SIMD kernel as
+ * {@link VectorizedSimulationStrategy}, on the calling thread, so every batch
+ * is read once for both rules.
+ *
+ * <p>
+ * Instances are not thread-safe; a feed with several producers must serialize
+ * its appends.
+ */
+public final class IncrementalDialCounter {
+
+    private static final DialModulus DIAL = DialModulus.DEFAULT;
+
+    private int position;
+    private long landings = 0;
+    private long crossings = 0;
+    private long stepCount = 0;
+
+    public IncrementalDialCounter(int initialPosition) {
+        this.position = Math.floorMod(initialPosition, 100);
+    }
+
+    /**
+     * Appends a batch of steps.
+     */
+    public void append(int[] steps) {
+        append(steps, 0, steps.length);
+    }
+
+    /**
+     * Appends {@code steps[from, to)}.
+     */
+    public void append(int[] steps, int from, int to) {
+        SimulationResult batch = new SimulationResult(position);
+        DialKernels.countBoth(MemorySegment.ofArray(steps), from, to, DIAL, batch);
+        landings += batch.landings();
+        crossings += batch.crossings();
+        position = batch.position();
+        stepCount += to - from;
+    }
+
+    /**
+     * @return The current dial position, in {@code [0, 100)}.
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * @return The number of steps so far that ended exactly on zero (Part 1).
+     */
+    public long landings() {
+        return landings;
+    }
+
+    /**
+     * @return The number of times the dial has passed through zero (Part 2).
+     */
+    public long crossings() {
+        return crossings;
+    }
+
+    /**
+     * @return The total number of steps appended.
+     */
+    public long stepCount() {
+        return stepCount;
+    }
+}
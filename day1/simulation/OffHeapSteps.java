@@ -0,0 +1,119 @@
+package day1.simulation;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parsed dial steps stored off-heap as native {@code int}s and indexed by
+ * {@code long}.
+ *
+ * <p>
+ * A heap {@code int[]} caps the input at {@code Integer.MAX_VALUE} steps and
+ * costs heap roughly twice the file size. Here the steps live in a segment
+ * allocated from the caller's {@link Arena}, so the step count is unbounded
+ * and the memory is released deterministically when the arena closes.
+ *
+ * <p>
+ * Parsing runs in two passes over line-aligned ranges of the input, both in
+ * parallel: the first counts the step markers of every range, which gives
+ * the exact storage size and each range's write offset; the second tokenizes
+ * every range straight into its slice of the storage.
+ */
+public final class OffHeapSteps {
+
+    /** Minimum number of input bytes per range before parsing is split across threads. */
+    private static final long MIN_PARSE_CHUNK_BYTES = 16 * 1024;
+
+    private final MemorySegment segment;
+    private final long count;
+
+    private OffHeapSteps(MemorySegment segment, long count) {
+        this.segment = segment;
+        this.count = count;
+    }
+
+    /**
+     * Parses the "L49"/"R27" step lines in {@code input}.
+     *
+     * @param input The raw step file, typically mapped from disk.
+     * @param arena The arena that owns the step storage. It must be a shared
+     *              arena, since the pool's workers write to the storage.
+     * @param pool  The pool to parse on.
+     * @return The parsed steps.
+     */
+    public static OffHeapSteps parse(MemorySegment input, Arena arena, ForkJoinPool pool) {
+        int parts = (int) Math.max(1, Math.min(pool.getParallelism(), input.byteSize() / MIN_PARSE_CHUNK_BYTES));
+        long[] bounds = StepTokenizer.splitLines(input, parts);
+
+        // Pass 1: count the steps of every range
+        long[] offsets = new long[parts + 1];
+        invokeAll(pool, parts, p -> offsets[p + 1] = StepTokenizer.countSteps(input, bounds[p], bounds[p + 1]));
+        for (int p = 0; p < parts; p++) {
+            offsets[p + 1] += offsets[p];
+        }
+
+        // Pass 2: tokenize every range into its own slice of the storage
+        MemorySegment steps = arena.allocate(ValueLayout.JAVA_INT.byteSize() * Math.max(offsets[parts], 1),
+                ValueLayout.JAVA_INT.byteAlignment());
+        invokeAll(pool, parts, p -> StepTokenizer.tokenize(input, bounds[p], bounds[p + 1], steps, offsets[p]));
+
+        return new OffHeapSteps(steps, offsets[parts]);
+    }
+
+    /**
+     * Wraps {@code count} native {@code int} steps that are already in memory,
+     * such as the body of a mapped {@link StepCache} file.
+     */
+    static OffHeapSteps of(MemorySegment segment, long count) {
+        return new OffHeapSteps(segment, count);
+    }
+
+    /**
+     * @return The number of steps.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return The step at {@code index}.
+     */
+    public int get(long index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + count);
+        }
+        return segment.getAtIndex(ValueLayout.JAVA_INT, index);
+    }
+
+    /**
+     * @return The native storage; steps occupy the first {@link #count()}
+     *         {@code int} slots.
+     */
+    public MemorySegment segment() {
+        return segment;
+    }
+
+    private interface RangeTask {
+        void run(int part);
+    }
+
+    private static void invokeAll(ForkJoinPool pool, int parts, RangeTask task) {
+        if (parts == 1) {
+            task.run(0);
+            return;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(parts);
+        for (int p = 0; p < parts; p++) {
+            int part = p;
+            tasks.add(pool.submit(() -> task.run(part)));
+        }
+        for (ForkJoinTask<?> t : tasks) {
+            t.join();
+        }
+    }
+}
@@ -0,0 +1,551 @@
+package day1.simulation;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Work-efficient parallel prefix scan over dial steps, built on fork/join.
+ *
+ * <p>
+ * The input is split into leaf blocks arranged in a balanced tree. The
+ * up-sweep reduces every leaf to its net displacement and combines the sums
+ * pairwise towards the root. The down-sweep then pushes start positions back
+ * towards the leaves, so every leaf learns its carry-in without a sequential
+ * chain over the blocks.
+ *
+ * <p>
+ * Both sweeps fork the left subtree and descend into the right one, so any
+ * idle worker can steal pending subtrees. The leaf count need not match the
+ * pool's parallelism; asking for many more leaves than workers balances the
+ * load when some workers run slower than others.
+ *
+ * <p>
+ * Inside a leaf, the position after every step is produced with an in-register
+ * SIMD prefix sum (see {@link #inclusivePrefix(IntVector)}) and consumed by a
+ * {@link LeafKernel} on the spot, so no per-block prefix array is allocated.
+ *
+ * <p>
+ * A fused scan hands every leaf a {@link SimulationResult} that starts at the
+ * leaf's carry-in, and the down-sweep merges the leaf results in input order:
+ * counts add up and the merged position is the rightmost one. One down-sweep
+ * thereby yields both rules and the final position. The up-sweep still runs
+ * first, since a leaf's counts depend on its start position and so cannot be
+ * taken before the displacements of the leaves to its left are known.
+ *
+ * <p>
+ * {@code int} steps are scanned through a {@link MemorySegment}, so heap
+ * arrays and {@link OffHeapSteps} share one path. Leaf ranges are
+ * {@code long}, so the scan also runs over off-heap steps holding more than
+ * {@code Integer.MAX_VALUE} steps.
+ *
+ * <p>
+ * A {@link SimulationListener} passed to a scan receives the duration of both
+ * sweeps and of every leaf in them, plus how long each leaf waited in the
+ * down-sweep for its start position. Without one, no clock is read.
+ */
+public final class ParallelPrefixScan {
+
+    /**
+     * Consumes one leaf of a scan over {@code int} steps.
+     */
+    @FunctionalInterface
+    public interface LeafKernel {
+        /**
+         * @param steps         The {@code int} step storage, on or off the heap.
+         * @param from          First step index of the leaf (inclusive).
+         * @param to            Last step index of the leaf (exclusive).
+         * @param startPosition The dial position before step {@code from}.
+         * @return The leaf's contribution to the total.
+         */
+        long apply(MemorySegment steps, long from, long to, int startPosition);
+    }
+
+    /**
+     * Consumes one leaf of a scan over 16-bit steps.
+     */
+    @FunctionalInterface
+    public interface NarrowLeafKernel {
+        /**
+         * @param steps         The step array.
+         * @param from          First index of the leaf (inclusive).
+         * @param to            Last index of the leaf (exclusive).
+         * @param startPosition The dial position before {@code steps[from]}.
+         * @return The leaf's contribution to the total.
+         */
+        long apply(short[] steps, int from, int to, int startPosition);
+    }
+
+    /**
+     * Consumes one leaf of a fused scan over {@code int} steps.
+     */
+    @FunctionalInterface
+    public interface FusedLeafKernel {
+        /**
+         * @param steps The {@code int} step storage, on or off the heap.
+         * @param from  First step index of the leaf (inclusive).
+         * @param to    Last step index of the leaf (exclusive).
+         * @param leaf  Starts at the dial position before step {@code from};
+         *              receives the leaf's counts and end position.
+         */
+        void apply(MemorySegment steps, long from, long to, SimulationResult leaf);
+    }
+
+    /**
+     * Consumes one leaf of a fused scan over 16-bit steps.
+     */
+    @FunctionalInterface
+    public interface NarrowFusedLeafKernel {
+        /**
+         * @param steps The step array.
+         * @param from  First index of the leaf (inclusive).
+         * @param to    Last index of the leaf (exclusive).
+         * @param leaf  Starts at the dial position before {@code steps[from]};
+         *              receives the leaf's counts and end position.
+         */
+        void apply(short[] steps, int from, int to, SimulationResult leaf);
+    }
+
+    /**
+     * The net displacement of one leaf range.
+     */
+    private interface RangeSum {
+        int apply(long from, long to);
+    }
+
+    /**
+     * A leaf kernel bound to its step storage.
+     */
+    private interface RangeKernel {
+        long apply(long from, long to, int startPosition);
+    }
+
+    /**
+     * A fused leaf kernel bound to its step storage.
+     */
+    private interface FusedRangeKernel {
+        void apply(long from, long to, SimulationResult leaf);
+    }
+
+    private static final VectorSpecies<Integer> SPECIES = DialKernels.SPECIES;
+    private static final VectorSpecies<Short> NARROW_SPECIES = DialKernels.NARROW_SPECIES;
+
+    private final ForkJoinPool pool;
+    private final DialModulus modulus;
+
+    public ParallelPrefixScan(ForkJoinPool pool) {
+        this(pool, DialModulus.DEFAULT);
+    }
+
+    /**
+     * @param pool    The fork/join pool to run the sweeps on.
+     * @param modulus The dial size that positions are reduced by.
+     */
+    public ParallelPrefixScan(ForkJoinPool pool, DialModulus modulus) {
+        this.pool = pool;
+        this.modulus = modulus;
+    }
+
+    /**
+     * Scans the first {@code count} {@code int} steps of {@code steps} in
+     * {@code leafCount} leaves and sums the kernel results. Heap arrays are
+     * passed as {@link MemorySegment#ofArray(int[])}.
+     *
+     * @param steps           The step storage, on or off the heap.
+     * @param count           The number of steps to scan.
+     * @param leafCount       The number of leaf blocks to split the input into.
+     * @param initialPosition The dial position before the first step.
+     * @param kernel          The kernel applied to every leaf.
+     * @return The sum of all leaf results.
+     */
+    public long scan(MemorySegment steps, long count, int leafCount, int initialPosition, LeafKernel kernel) {
+        return scan(steps, count, leafCount, initialPosition, kernel, SimulationListener.NONE);
+    }
+
+    /**
+     * Scans {@code steps} like
+     * {@link #scan(MemorySegment, long, int, int, LeafKernel)} and reports the
+     * sweep and leaf timings to {@code listener}.
+     */
+    public long scan(MemorySegment steps, long count, int leafCount, int initialPosition, LeafKernel kernel,
+            SimulationListener listener) {
+        return scan(count, leafCount, initialPosition,
+                (from, to) -> netDisplacement(steps, from, to, modulus),
+                (from, to, start) -> kernel.apply(steps, from, to, start), listener);
+    }
+
+    /**
+     * Scans 16-bit {@code steps} in {@code leafCount} leaves and sums the kernel
+     * results.
+     *
+     * @param steps           The step array.
+     * @param leafCount       The number of leaf blocks to split the input into.
+     * @param initialPosition The dial position before the first step.
+     * @param kernel          The kernel applied to every leaf.
+     * @return The sum of all leaf results.
+     */
+    public long scan(short[] steps, int leafCount, int initialPosition, NarrowLeafKernel kernel) {
+        return scan(steps, leafCount, initialPosition, kernel, SimulationListener.NONE);
+    }
+
+    /**
+     * Scans 16-bit {@code steps} like
+     * {@link #scan(short[], int, int, NarrowLeafKernel)} and reports the sweep
+     * and leaf timings to {@code listener}.
+     */
+    public long scan(short[] steps, int leafCount, int initialPosition, NarrowLeafKernel kernel,
+            SimulationListener listener) {
+        return scan(steps.length, leafCount, initialPosition,
+                (from, to) -> netDisplacement(steps, (int) from, (int) to, modulus),
+                (from, to, start) -> kernel.apply(steps, (int) from, (int) to, start), listener);
+    }
+
+    /**
+     * Scans the first {@code count} {@code int} steps of {@code steps} in
+     * {@code leafCount} leaves from {@code result.position()} and adds the
+     * merged leaf results to {@code result}. {@code result} is only modified
+     * once every leaf has completed.
+     *
+     * @param steps     The step storage, on or off the heap.
+     * @param count     The number of steps to scan.
+     * @param leafCount The number of leaf blocks to split the input into.
+     * @param result    The result to continue from and add to.
+     * @param kernel    The kernel applied to every leaf.
+     */
+    public void scan(MemorySegment steps, long count, int leafCount, SimulationResult result,
+            FusedLeafKernel kernel) {
+        scan(steps, count, leafCount, result, kernel, SimulationListener.NONE);
+    }
+
+    /**
+     * Scans {@code steps} like
+     * {@link #scan(MemorySegment, long, int, SimulationResult, FusedLeafKernel)}
+     * and reports the sweep and leaf timings to {@code listener}.
+     */
+    public void scan(MemorySegment steps, long count, int leafCount, SimulationResult result,
+            FusedLeafKernel kernel, SimulationListener listener) {
+        scan(count, leafCount, result,
+                (from, to) -> netDisplacement(steps, from, to, modulus),
+                (from, to, leaf) -> kernel.apply(steps, from, to, leaf), listener);
+    }
+
+    /**
+     * Scans 16-bit {@code steps} like
+     * {@link #scan(MemorySegment, long, int, SimulationResult, FusedLeafKernel)}.
+     */
+    public void scan(short[] steps, int leafCount, SimulationResult result, NarrowFusedLeafKernel kernel) {
+        scan(steps, leafCount, result, kernel, SimulationListener.NONE);
+    }
+
+    /**
+     * Scans 16-bit {@code steps} like
+     * {@link #scan(short[], int, SimulationResult, NarrowFusedLeafKernel)} and
+     * reports the sweep and leaf timings to {@code listener}.
+     */
+    public void scan(short[] steps, int leafCount, SimulationResult result, NarrowFusedLeafKernel kernel,
+            SimulationListener listener) {
+        scan(steps.length, leafCount, result,
+                (from, to) -> netDisplacement(steps, (int) from, (int) to, modulus),
+                (from, to, leaf) -> kernel.apply(steps, (int) from, (int) to, leaf), listener);
+    }
+
+    private void scan(long length, int leafCount, SimulationResult result, RangeSum sum, FusedRangeKernel kernel,
+            SimulationListener listener) {
+        int start = modulus.floorMod(result.position());
+        SimulationResult total;
+        if (listener == SimulationListener.NONE) {
+            Node root = pool.invoke(new UpSweep(0, length, 0, leafCount, sum, modulus, listener));
+            total = pool.invoke(new FusedDownSweep(root, start, kernel, modulus, listener, 0));
+        } else {
+            long started = System.nanoTime();
+            Node root = pool.invoke(new UpSweep(0, length, 0, leafCount, sum, modulus, listener));
+            long swept = System.nanoTime();
+            listener.onPhase(SimulationListener.Phase.DISPLACEMENT, swept - started);
+
+            total = pool.invoke(new FusedDownSweep(root, start, kernel, modulus, listener, swept));
+            listener.onPhase(SimulationListener.Phase.COUNT, System.nanoTime() - swept);
+        }
+        result.add(total.landings(), total.crossings(), total.stepCount(), total.position());
+    }
+
+    private long scan(long length, int leafCount, int initialPosition, RangeSum sum, RangeKernel kernel,
+            SimulationListener listener) {
+        if (listener == SimulationListener.NONE) {
+            Node root = pool.invoke(new UpSweep(0, length, 0, leafCount, sum, modulus, listener));
+            return pool.invoke(new DownSweep(root, modulus.floorMod(initialPosition), kernel, modulus, listener, 0));
+        }
+
+        long started = System.nanoTime();
+        Node root = pool.invoke(new UpSweep(0, length, 0, leafCount, sum, modulus, listener));
+        long swept = System.nanoTime();
+        listener.onPhase(SimulationListener.Phase.DISPLACEMENT, swept - started);
+
+        long total = pool.invoke(new DownSweep(root, modulus.floorMod(initialPosition), kernel, modulus, listener,
+                swept));
+        listener.onPhase(SimulationListener.Phase.COUNT, System.nanoTime() - swept);
+        return total;
+    }
+
+    /**
+     * Computes the inclusive prefix sum of a vector in registers using
+     * log2(lanes) shift-and-add steps.
+     *
+     * @param v The input lanes.
+     * @return A vector whose lane {@code i} holds {@code v[0] + ... + v[i]}.
+     */
+    public static IntVector inclusivePrefix(IntVector v) {
+        for (int shift = 1; shift < v.length(); shift <<= 1) {
+            // unslice shifts lanes up by `shift`, filling the low lanes with zero
+            v = v.add(v.unslice(shift));
+        }
+        return v;
+    }
+
+    /**
+     * Computes the inclusive prefix sum of a vector of 16-bit lanes in
+     * registers. Lanes wrap on overflow; callers must bound the magnitudes.
+     */
+    public static ShortVector inclusivePrefix(ShortVector v) {
+        for (int shift = 1; shift < v.length(); shift <<= 1) {
+            v = v.add(v.unslice(shift));
+        }
+        return v;
+    }
+
+    /**
+     * Computes the net displacement (mod 100) of a range of steps.
+     */
+    public static int netDisplacement(int[] steps, int from, int to) {
+        return netDisplacement(steps, from, to, DialModulus.DEFAULT);
+    }
+
+    /**
+     * Computes the net displacement of a range of steps, reduced into
+     * {@code [0, modulus)}.
+     */
+    public static int netDisplacement(int[] steps, int from, int to, DialModulus modulus) {
+        return netDisplacement(MemorySegment.ofArray(steps), from, to, modulus);
+    }
+
+    /**
+     * Computes the net displacement of the 16-bit steps {@code [from, to)},
+     * reduced into {@code [0, modulus)}. Lanes are widened before summing, so
+     * any {@code short} values are safe.
+     */
+    public static int netDisplacement(short[] steps, int from, int to, DialModulus modulus) {
+        int i = from;
+        int sum = 0;
+        int loopBound = from + NARROW_SPECIES.loopBound(to - from);
+        // Vectorized loop
+        for (; i < loopBound; i += NARROW_SPECIES.length()) {
+            ShortVector v = ShortVector.fromArray(NARROW_SPECIES, steps, i);
+            IntVector low = (IntVector) v.convertShape(VectorOperators.S2I, SPECIES, 0);
+            IntVector high = (IntVector) v.convertShape(VectorOperators.S2I, SPECIES, 1);
+            sum = modulus.floorMod(sum + low.add(high).reduceLanes(VectorOperators.ADD));
+        }
+        // Tail loop
+        for (; i < to; i++) {
+            sum = modulus.floorMod(sum + steps[i]);
+        }
+        return sum;
+    }
+
+    /**
+     * Computes the net displacement of the {@code int} steps
+     * {@code [from, to)}, on or off the heap, reduced into
+     * {@code [0, modulus)}.
+     */
+    public static int netDisplacement(MemorySegment steps, long from, long to, DialModulus modulus) {
+        int[] heap = DialKernels.heapArray(steps);
+        int limit = DialKernels.wideLimit(modulus);
+        long i = from;
+        int sum = 0;
+        long loopBound = from + DialKernels.wideLoopBound(to - from, limit);
+        while (i < to) {
+            // Vectorized loop, while the lanes cannot overflow their sum
+            if (i < loopBound) {
+                IntVector v = DialKernels.load(steps, heap, i);
+                if (DialKernels.fitsWide(v, limit)) {
+                    sum = modulus.floorMod(sum + v.reduceLanes(VectorOperators.ADD));
+                    i += SPECIES.length();
+                    continue;
+                }
+            }
+            // Tail loop, or a vector of steps too large to sum in lanes
+            for (long end = Math.min(i + SPECIES.length(), to); i < end; i++) {
+                sum = modulus.floorMod((long) sum + steps.getAtIndex(ValueLayout.JAVA_INT, i));
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * A node of the scan tree. Leaves cover a contiguous range of steps;
+     * {@code sum} is the net displacement of the whole subtree, reduced by the dial size.
+     */
+    private static final class Node {
+        final long from;
+        final long to;
+        final int leaf;
+        final int sum;
+        final Node left;
+        final Node right;
+
+        Node(long from, long to, int leaf, int sum, Node left, Node right) {
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+            this.sum = sum;
+            this.left = left;
+            this.right = right;
+        }
+
+        boolean isLeaf() {
+            return left == null;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class UpSweep extends RecursiveTask<Node> {
+        private final long from;
+        private final long to;
+        // Index of the first leaf in this subtree, in input order
+        private final int firstLeaf;
+        private final int leaves;
+        private final RangeSum sum;
+        private final DialModulus modulus;
+        private final SimulationListener listener;
+
+        UpSweep(long from, long to, int firstLeaf, int leaves, RangeSum sum, DialModulus modulus,
+                SimulationListener listener) {
+            this.from = from;
+            this.to = to;
+            this.firstLeaf = firstLeaf;
+            this.leaves = leaves;
+            this.sum = sum;
+            this.modulus = modulus;
+            this.listener = listener;
+        }
+
+        @Override
+        protected Node compute() {
+            if (leaves <= 1) {
+                if (listener == SimulationListener.NONE) {
+                    return new Node(from, to, firstLeaf, sum.apply(from, to), null, null);
+                }
+                long started = System.nanoTime();
+                int displacement = sum.apply(from, to);
+                listener.onChunk(SimulationListener.Phase.DISPLACEMENT, firstLeaf, to - from,
+                        System.nanoTime() - started);
+                return new Node(from, to, firstLeaf, displacement, null, null);
+            }
+            int leftLeaves = leaves / 2;
+            long mid = from + (to - from) * leftLeaves / leaves;
+
+            UpSweep leftTask = new UpSweep(from, mid, firstLeaf, leftLeaves, sum, modulus, listener);
+            leftTask.fork();
+            Node right = new UpSweep(mid, to, firstLeaf + leftLeaves, leaves - leftLeaves, sum, modulus, listener)
+                    .compute();
+            Node left = leftTask.join();
+            return new Node(from, to, firstLeaf, modulus.floorMod(left.sum + right.sum), left, right);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class DownSweep extends RecursiveTask<Long> {
+        private final Node node;
+        private final int startPosition;
+        private final RangeKernel kernel;
+        private final DialModulus modulus;
+        private final SimulationListener listener;
+        // When the down-sweep began, for the start position wait of every leaf
+        private final long sweepStarted;
+
+        DownSweep(Node node, int startPosition, RangeKernel kernel, DialModulus modulus,
+                SimulationListener listener, long sweepStarted) {
+            this.node = node;
+            this.startPosition = startPosition;
+            this.kernel = kernel;
+            this.modulus = modulus;
+            this.listener = listener;
+            this.sweepStarted = sweepStarted;
+        }
+
+        @Override
+        protected Long compute() {
+            if (node.isLeaf()) {
+                if (listener == SimulationListener.NONE) {
+                    return kernel.apply(node.from, node.to, startPosition);
+                }
+                long started = System.nanoTime();
+                long count = kernel.apply(node.from, node.to, startPosition);
+                long elapsed = System.nanoTime() - started;
+                listener.onChunk(SimulationListener.Phase.START_POSITIONS, node.leaf, node.to - node.from,
+                        started - sweepStarted);
+                listener.onChunk(SimulationListener.Phase.COUNT, node.leaf, node.to - node.from, elapsed);
+                return count;
+            }
+            // The right subtree starts where the left subtree ends
+            DownSweep leftTask = new DownSweep(node.left, startPosition, kernel, modulus, listener, sweepStarted);
+            leftTask.fork();
+            int rightStart = modulus.floorMod(startPosition + node.left.sum);
+            long right = new DownSweep(node.right, rightStart, kernel, modulus, listener, sweepStarted).compute();
+            return leftTask.join() + right;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class FusedDownSweep extends RecursiveTask<SimulationResult> {
+        private final Node node;
+        private final int startPosition;
+        private final FusedRangeKernel kernel;
+        private final DialModulus modulus;
+        private final SimulationListener listener;
+        // When the down-sweep began, for the start position wait of every leaf
+        private final long sweepStarted;
+
+        FusedDownSweep(Node node, int startPosition, FusedRangeKernel kernel, DialModulus modulus,
+                SimulationListener listener, long sweepStarted) {
+            this.node = node;
+            this.startPosition = startPosition;
+            this.kernel = kernel;
+            this.modulus = modulus;
+            this.listener = listener;
+            this.sweepStarted = sweepStarted;
+        }
+
+        @Override
+        protected SimulationResult compute() {
+            if (node.isLeaf()) {
+                SimulationResult leaf = new SimulationResult(startPosition);
+                if (listener == SimulationListener.NONE) {
+                    kernel.apply(node.from, node.to, leaf);
+                    return leaf;
+                }
+                long started = System.nanoTime();
+                kernel.apply(node.from, node.to, leaf);
+                long elapsed = System.nanoTime() - started;
+                listener.onChunk(SimulationListener.Phase.START_POSITIONS, node.leaf, node.to - node.from,
+                        started - sweepStarted);
+                listener.onChunk(SimulationListener.Phase.COUNT, node.leaf, node.to - node.from, elapsed);
+                return leaf;
+            }
+            FusedDownSweep leftTask = new FusedDownSweep(node.left, startPosition, kernel, modulus, listener,
+                    sweepStarted);
+            leftTask.fork();
+            int rightStart = modulus.floorMod(startPosition + node.left.sum);
+            SimulationResult right = new FusedDownSweep(node.right, rightStart, kernel, modulus, listener,
+                    sweepStarted).compute();
+            // Counts add up; the merged range ends where its right half ends
+            SimulationResult left = leftTask.join();
+            left.add(right.landings(), right.crossings(), right.stepCount(), right.position());
+            return left;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package day1.simulation;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Worker process of a {@link ShardedDialRunner}.
+ *
+ * <p>
+ * Usage: {@code ShardWorker <stepFile> <fromByte> <toByte>}. The worker maps
+ * its line-aligned byte range, parses and sweeps it window by window, and
+ * prints one summary line to standard output:
+ *
+ * <pre>
+ * SHARD &lt;steps&gt; &lt;delta&gt; &lt;landings[0..99]&gt; &lt;crossings[0..99]&gt;
+ * </pre>
+ *
+ * Every count is per start position, so the coordinator can merge shards
+ * without knowing where each one starts. Failures exit with a non-zero status.
+ */
+public final class ShardWorker {
+
+    /** Prefix of the summary line, so stray output is never mistaken for it. */
+    static final String SUMMARY_PREFIX = "SHARD";
+
+    /** Input bytes parsed per window, which bounds the worker's heap use. */
+    private static final long WINDOW_BYTES = 8 * 1024 * 1024;
+
+    private ShardWorker() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.err.println("Usage: ShardWorker <stepFile> <fromByte> <toByte>");
+            System.exit(2);
+        }
+        try {
+            StartPositionSweep sweep = new StartPositionSweep();
+            long steps = sweep(Path.of(args[0]), Long.parseLong(args[1]), Long.parseLong(args[2]), sweep);
+            System.out.println(format(steps, sweep));
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Sweeps the steps in {@code [from, to)} of {@code stepFile}.
+     *
+     * @return The number of steps swept.
+     */
+    static long sweep(Path stepFile, long from, long to, StartPositionSweep sweep) throws IOException {
+        try (FileChannel channel = FileChannel.open(stepFile, StandardOpenOption.READ);
+                Arena arena = Arena.ofConfined()) {
+            MemorySegment input = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from, arena);
+            int[] steps = new int[(int) ((Math.min(WINDOW_BYTES, input.byteSize()) + 1) / 2) + 1];
+            MemorySegment stepSegment = MemorySegment.ofArray(steps);
+
+            long total = 0;
+            long windowStart = 0;
+            while (windowStart < input.byteSize()) {
+                long windowEnd = lineEnd(input, Math.min(windowStart + WINDOW_BYTES, input.byteSize()));
+                if (windowEnd - windowStart > 2L * (steps.length - 1)) {
+                    // A single line longer than the window
+                    steps = new int[(int) ((windowEnd - windowStart + 1) / 2) + 1];
+                    stepSegment = MemorySegment.ofArray(steps);
+                }
+                int count = (int) StepTokenizer.tokenize(input, windowStart, windowEnd, stepSegment, 0);
+                sweep.accept(steps, 0, count);
+                total += count;
+                windowStart = windowEnd;
+            }
+            return total;
+        }
+    }
+
+    /**
+     * @return The offset just past the newline at or after {@code index}, or
+     *         the end of the input.
+     */
+    private static long lineEnd(MemorySegment input, long index) {
+        while (index < input.byteSize() && input.get(ValueLayout.JAVA_BYTE, index - 1) != '\n') {
+            index++;
+        }
+        return index;
+    }
+
+    static String format(long steps, StartPositionSweep sweep) {
+        StringBuilder line = new StringBuilder(SUMMARY_PREFIX).append(' ').append(steps).append(' ')
+                .append(sweep.offset());
+        for (long landings : sweep.landings()) {
+            line.append(' ').append(landings);
+        }
+        for (long crossings : sweep.crossings()) {
+            line.append(' ').append(crossings);
+        }
+        return line.toString();
+    }
+}
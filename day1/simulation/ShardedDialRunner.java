@@ -0,0 +1,327 @@
+package day1.simulation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Simulates one step file across several worker JVMs.
+ * Uses the Builder pattern for configuration, like {@link DialSimulator}.
+ *
+ * <p>
+ * The coordinator splits the file into line-aligned byte ranges and starts
+ * one {@link ShardWorker} process per range; local processes stand in for
+ * remote nodes. Each worker returns the summary of its range for every start
+ * position, so the shards run fully independently. The coordinator rebuilds
+ * them as {@link DialTransition} and {@link CrossingTransition} values and
+ * folds them in file order with the same merge used by the in-process
+ * reductions, then reads off the answer for the actual start position.
+ *
+ * <p>
+ * Workers are launched with the coordinator's own Java executable unless
+ * configured otherwise. Their default class path starts with the location
+ * {@link ShardWorker} was loaded from, since under a launcher such as the
+ * JUnit console jar {@code java.class.path} holds only the launcher. Every
+ * worker also gets the coordinator's {@code --enable-preview} and
+ * {@code --add-modules} options, which the day1 classes need to load.
+ *
+ * <p>
+ * Worker output is read on virtual threads, so a worker that hangs is
+ * destroyed once the timeout passes instead of blocking the coordinator.
+ */
+public class ShardedDialRunner {
+    private static final Logger logger = LogManager.getLogger(ShardedDialRunner.class);
+    private static final int DIAL_SIZE = DialTransition.DIAL_SIZE;
+
+    private final String filePath;
+    private final int shards;
+    private final String javaCommand;
+    private final String classPath;
+    private final List<String> jvmOptions;
+    private final long timeoutSeconds;
+
+    private ShardedDialRunner(Builder builder) {
+        this.filePath = builder.filePath;
+        this.shards = builder.shards;
+        this.javaCommand = builder.javaCommand;
+        this.classPath = builder.classPath;
+        this.jvmOptions = List.copyOf(builder.jvmOptions);
+        this.timeoutSeconds = builder.timeoutSeconds;
+    }
+
+    /**
+     * Runs every shard and adds both counts to {@code result}, starting from
+     * its position.
+     *
+     * @param result The result to continue from and add to.
+     * @return {@code true} if every shard completed in time with a well-formed
+     *         summary; on failure {@code result} is left unchanged.
+     * @throws InterruptedException If the caller is interrupted while waiting
+     *                              for the workers.
+     */
+    public boolean run(SimulationResult result) throws InterruptedException {
+        long[] bounds;
+        try {
+            bounds = splitFile();
+        } catch (IOException e) {
+            logger.error("Error reading file", e);
+            return false;
+        }
+        int parts = bounds.length - 1;
+        logger.info("Starting {} shard workers for file: {}", parts, filePath);
+
+        List<Process> workers = new ArrayList<>(parts);
+        try {
+            for (int p = 0; p < parts; p++) {
+                workers.add(start(bounds[p], bounds[p + 1]));
+            }
+            // The workers run concurrently, so they share one deadline
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+
+            DialTransition landings = DialTransition.IDENTITY;
+            CrossingTransition crossings = CrossingTransition.IDENTITY;
+            long steps = 0;
+            // Merge in file order; the transitions are associative but not commutative
+            for (int p = 0; p < parts; p++) {
+                long[] summary = collect(workers.get(p), p, deadline);
+                if (summary == null) {
+                    return false;
+                }
+                int delta = (int) summary[1];
+                long[] hits = new long[DIAL_SIZE];
+                long[] passes = new long[DIAL_SIZE];
+                System.arraycopy(summary, 2, hits, 0, DIAL_SIZE);
+                System.arraycopy(summary, 2 + DIAL_SIZE, passes, 0, DIAL_SIZE);
+                landings = DialTransition.merge(landings, DialTransition.of(hits, delta));
+                crossings = CrossingTransition.merge(crossings, CrossingTransition.of(passes, delta));
+                steps += summary[0];
+            }
+
+            int start = Math.floorMod(result.position(), DIAL_SIZE);
+            result.add(landings.hits(start), crossings.crossings(start), steps,
+                    (start + landings.delta()) % DIAL_SIZE);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Shard worker failed", e);
+            return false;
+        } finally {
+            for (Process worker : workers) {
+                worker.destroyForcibly();
+            }
+        }
+    }
+
+    private long[] splitFile() throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ);
+                Arena arena = Arena.ofConfined()) {
+            MemorySegment input = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            return StepTokenizer.splitLines(input, shards);
+        }
+    }
+
+    private Process start(long from, long to) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(javaCommand);
+        command.addAll(inheritedOptions());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(classPath);
+        command.add(ShardWorker.class.getName());
+        command.add(filePath);
+        command.add(Long.toString(from));
+        command.add(Long.toString(to));
+        return new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    /**
+     * Reads a worker's summary line and waits for it to exit, both before
+     * {@code deadline}. A worker still running at the deadline is destroyed.
+     *
+     * @return The steps, delta, landings and crossings, or null if the worker
+     *         failed, timed out or printed a malformed summary.
+     */
+    private long[] collect(Process worker, int part, long deadline) throws InterruptedException {
+        AtomicReference<long[]> summary = new AtomicReference<>();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        // readLine blocks until the worker closes its output, so it gets a thread of its own
+        Thread reader = Thread.ofVirtual().name("shard-reader-" + part).start(() -> {
+            try (BufferedReader lines = new BufferedReader(
+                    new InputStreamReader(worker.getInputStream(), StandardCharsets.US_ASCII))) {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (line.startsWith(ShardWorker.SUMMARY_PREFIX + " ")) {
+                        summary.set(parse(line));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                failure.set(e);
+            }
+        });
+
+        if (!reader.join(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())))
+                || !worker.waitFor(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+            // Destroying the worker closes its output, which ends the reader
+            worker.destroyForcibly();
+            logger.error("Shard {} timed out after {} s", part, timeoutSeconds);
+            return null;
+        }
+        if (failure.get() != null) {
+            logger.error("Shard {} returned an unreadable summary", part, failure.get());
+            return null;
+        }
+        if (worker.exitValue() != 0 || summary.get() == null) {
+            logger.error("Shard {} failed with exit code {}", part, worker.exitValue());
+            return null;
+        }
+        return summary.get();
+    }
+
+    /**
+     * @return The {@code --enable-preview} and {@code --add-modules} options
+     *         this JVM was started with.
+     */
+    private static List<String> inheritedOptions() {
+        List<String> options = new ArrayList<>();
+        Iterator<String> arguments = ManagementFactory.getRuntimeMXBean().getInputArguments().iterator();
+        while (arguments.hasNext()) {
+            String argument = arguments.next();
+            if (argument.equals("--enable-preview") || argument.startsWith("--add-modules=")) {
+                options.add(argument);
+            } else if (argument.equals("--add-modules") && arguments.hasNext()) {
+                options.add(argument);
+                options.add(arguments.next());
+            }
+        }
+        return options;
+    }
+
+    /**
+     * @return The location {@link ShardWorker} was loaded from, followed by
+     *         this JVM's class path.
+     */
+    private static String defaultClassPath() {
+        Set<String> entries = new LinkedHashSet<>();
+        CodeSource source = ShardWorker.class.getProtectionDomain().getCodeSource();
+        if (source != null && source.getLocation() != null) {
+            try {
+                entries.add(Path.of(source.getLocation().toURI()).toString());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                logger.warn("Cannot use the location of ShardWorker: {}", source.getLocation());
+            }
+        }
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                entries.add(entry);
+            }
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private static long[] parse(String line) {
+        String[] fields = line.split(" ");
+        if (fields.length != 3 + 2 * DIAL_SIZE) {
+            throw new IllegalStateException("Malformed shard summary with " + fields.length + " fields");
+        }
+        long[] summary = new long[fields.length - 1];
+        for (int i = 1; i < fields.length; i++) {
+            summary[i - 1] = Long.parseLong(fields[i]);
+        }
+        return summary;
+    }
+
+    public static class Builder {
+        private String filePath;
+        private int shards = Runtime.getRuntime().availableProcessors();
+        private String javaCommand = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        private String classPath = defaultClassPath();
+        private List<String> jvmOptions = List.of();
+        private long timeoutSeconds = 600;
+
+        public Builder filePath(String filePath) {
+            this.filePath = filePath;
+            return this;
+        }
+
+        /**
+         * Sets the number of worker processes (default: one per core).
+         * Small files may get fewer, since ranges are line-aligned.
+         */
+        public Builder shards(int shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        /**
+         * Sets the Java executable that runs the workers.
+         */
+        public Builder javaCommand(String javaCommand) {
+            this.javaCommand = javaCommand;
+            return this;
+        }
+
+        /**
+         * Sets the class path of the workers; it must contain this package.
+         */
+        public Builder classPath(String classPath) {
+            this.classPath = classPath;
+            return this;
+        }
+
+        /**
+         * Sets extra JVM options of the workers, such as heap limits. They
+         * follow the options inherited from this JVM.
+         */
+        public Builder jvmOptions(List<String> jvmOptions) {
+            this.jvmOptions = jvmOptions;
+            return this;
+        }
+
+        /**
+         * Sets how long the workers may run. Workers still running after that
+         * are destroyed and the run fails.
+         */
+        public Builder timeoutSeconds(long timeoutSeconds) {
+            this.timeoutSeconds = timeoutSeconds;
+            return this;
+        }
+
+        public ShardedDialRunner build() {
+            if (filePath == null) {
+                throw new IllegalStateException("File path must be set.");
+            }
+            if (shards <= 0) {
+                throw new IllegalStateException("Shards must be positive.");
+            }
+            if (javaCommand == null || classPath == null || jvmOptions == null) {
+                throw new IllegalStateException("Java command, class path and JVM options must be set.");
+            }
+            if (timeoutSeconds <= 0) {
+                throw new IllegalStateException("Timeout must be positive.");
+            }
+            return new ShardedDialRunner(this);
+        }
+    }
+}
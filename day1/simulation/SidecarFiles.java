@@ -0,0 +1,72 @@
+package day1.simulation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the files kept next to a step file, such as the {@link StepCache}
+ * and the {@link StepIndex}. Both only speed up later runs, so a file that
+ * cannot be written is logged and skipped instead of failing the run.
+ */
+final class SidecarFiles {
+
+    private static final Logger logger = LogManager.getLogger(SidecarFiles.class);
+
+    /**
+     * Writes the contents of a sidecar file.
+     */
+    @FunctionalInterface
+    interface Contents {
+        void writeTo(FileChannel channel) throws IOException;
+    }
+
+    private SidecarFiles() {
+    }
+
+    /**
+     * Replaces {@code target} with {@code contents}. The contents are written
+     * to a temporary file next to the target and moved into place, so readers
+     * never see a partial file.
+     *
+     * @param target      The sidecar file.
+     * @param description What the file is, for the log.
+     * @param contents    Writes the new contents.
+     * @return {@code true} if the file was replaced; otherwise the failure is
+     *         logged and the old file, if any, is left in place.
+     */
+    static boolean atomicWrite(Path target, String description, Contents contents) {
+        try {
+            Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(),
+                    ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    contents.writeTo(channel);
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            return true;
+        } catch (IOException e) {
+            logger.warn("Could not write {} {}: {}", description, target, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Writes every remaining byte of {@code buffer}.
+     */
+    static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package day1.simulation;
+
+/**
+ * Receives timings and counters from a simulation run.
+ *
+ * <p>
+ * Every method has an empty default, so a listener only overrides what it
+ * needs. Runs without a listener use {@link #NONE}, which strategies detect
+ * up front: no clock is read and no event is built, so metrics cost nothing
+ * when disabled. Chunk events arrive from pool threads, so implementations
+ * must be thread-safe.
+ */
+public interface SimulationListener {
+
+    /**
+     * The phases of a run. Not every strategy reports every phase.
+     */
+    enum Phase {
+        /** Reading the input file. */
+        READ,
+        /** Tokenizing step text into step arrays. */
+        PARSE,
+        /** Phase 1: the net displacement of every chunk. */
+        DISPLACEMENT,
+        /**
+         * How long a chunk waited for its start position to be resolved. The
+         * waits overlap, so this phase is reported per chunk only.
+         */
+        START_POSITIONS,
+        /** Phase 2: counting with the known start positions. */
+        COUNT
+    }
+
+    /** A listener that ignores every event. */
+    SimulationListener NONE = new SimulationListener() {
+    };
+
+    /**
+     * Called once per strategy run, after it completes.
+     *
+     * @param elementCount The number of steps simulated.
+     * @param species      The vector species of the kernels, or "scalar".
+     * @param nanos        The wall-clock time of the whole run.
+     */
+    default void onRun(long elementCount, String species, long nanos) {
+    }
+
+    /**
+     * Called when a phase completes.
+     *
+     * @param phase The phase.
+     * @param nanos The wall-clock time of the phase.
+     */
+    default void onPhase(Phase phase, long nanos) {
+    }
+
+    /**
+     * Called when one chunk of a phase completes. Uneven durations within a
+     * phase point at chunk imbalance.
+     *
+     * @param phase        The phase.
+     * @param chunk        The chunk index, in input order.
+     * @param elementCount The number of steps (or bytes, when parsing) in the
+     *                     chunk.
+     * @param nanos        The time spent on the chunk.
+     */
+    default void onChunk(Phase phase, int chunk, long elementCount, long nanos) {
+    }
+}
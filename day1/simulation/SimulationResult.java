@@ -0,0 +1,93 @@
+package day1.simulation;
+
+/**
+ * Mutable, primitive outcome of one or more simulation runs: the counts for
+ * both rules and the dial position the runs ended on.
+ *
+ * <p>
+ * A strategy run with a result starts at {@link #position()}, adds its counts
+ * and leaves the final position behind, so passing the same result to
+ * consecutive runs chains segments without re-simulating what came before.
+ * Counts are {@code long} and nothing is boxed, so one result can be reused
+ * across runs with no allocation.
+ *
+ * <p>
+ * Instances are not thread-safe.
+ */
+public final class SimulationResult {
+
+    private int position;
+    private long landings;
+    private long crossings;
+    private long stepCount;
+
+    /**
+     * @param initialPosition The dial position before the first run.
+     */
+    public SimulationResult(int initialPosition) {
+        reset(initialPosition);
+    }
+
+    /**
+     * Clears the counts and moves the dial to {@code initialPosition}, so the
+     * result can be reused for another input.
+     *
+     * @return This result.
+     */
+    public SimulationResult reset(int initialPosition) {
+        this.position = initialPosition;
+        this.landings = 0;
+        this.crossings = 0;
+        this.stepCount = 0;
+        return this;
+    }
+
+    /**
+     * Records a run that continued from {@link #position()}.
+     *
+     * @param landings    The steps of the run that ended exactly on zero.
+     * @param crossings   The times the run passed through zero.
+     * @param stepCount   The number of steps in the run.
+     * @param endPosition The dial position after the run's last step.
+     */
+    public void add(long landings, long crossings, long stepCount, int endPosition) {
+        this.landings += landings;
+        this.crossings += crossings;
+        this.stepCount += stepCount;
+        this.position = endPosition;
+    }
+
+    /**
+     * @return The dial position the next run starts from.
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * @return The number of steps that ended exactly on zero (Part 1).
+     */
+    public long landings() {
+        return landings;
+    }
+
+    /**
+     * @return The number of times the dial passed through zero (Part 2).
+     */
+    public long crossings() {
+        return crossings;
+    }
+
+    /**
+     * @return The total number of steps simulated.
+     */
+    public long stepCount() {
+        return stepCount;
+    }
+
+    @Override
+    public String toString() {
+        return "SimulationResult[position=" + position + ", landings=" + landings + ", crossings=" + crossings
+                + ", stepCount=" + stepCount + "]";
+    }
+}
@@ -1,5 +1,6 @@
 package day1.simulation;
 
+import java.lang.foreign.MemorySegment;
 import java.util.Optional;
 
 /**
@@ -14,4 +15,55 @@ public interface SimulationStrategy {
      * @return A Result containing the count of zero crossings.
      */
     Optional<Integer> run(int[] steps, int initialPosition);
+
+    /**
+     * Runs the simulation and reports its timings to {@code listener}.
+     * Strategies without phases of their own report the whole run as
+     * {@link SimulationListener.Phase#COUNT}.
+     *
+     * @param steps           The array of steps.
+     * @param initialPosition The initial position of the dial.
+     * @param listener        Receives the metrics of the run.
+     * @return A Result containing the count of zero crossings.
+     */
+    default Optional<Integer> run(int[] steps, int initialPosition, SimulationListener listener) {
+        if (listener == SimulationListener.NONE) {
+            return run(steps, initialPosition);
+        }
+        long started = System.nanoTime();
+        Optional<Integer> result = run(steps, initialPosition);
+        long elapsed = System.nanoTime() - started;
+        listener.onPhase(SimulationListener.Phase.COUNT, elapsed);
+        listener.onRun(steps.length, "scalar", elapsed);
+        return result;
+    }
+
+    /**
+     * @return The number of positions on the dial this strategy counts on.
+     *         Simulators reject a strategy whose modulus differs from their
+     *         dial's.
+     */
+    default int modulus() {
+        return DialTransition.DIAL_SIZE;
+    }
+
+    /**
+     * Runs the simulation from {@code result.position()}, adds the counts for
+     * both rules to {@code result} and leaves the final position in it.
+     *
+     * <p>
+     * The default counts both rules in one fused SIMD pass on the calling
+     * thread, on a dial of {@link #modulus()} positions; strategies with a
+     * faster path override it.
+     *
+     * @param steps  The array of steps.
+     * @param result The result to continue from and add to.
+     * @return {@code true} if the run completed; on failure {@code result} is
+     *         left unchanged.
+     */
+    default boolean run(int[] steps, SimulationResult result) {
+        DialModulus dial = (modulus() == DialTransition.DIAL_SIZE) ? DialModulus.DEFAULT : new DialModulus(modulus());
+        DialKernels.countBoth(MemorySegment.ofArray(steps), 0, steps.length, dial, result);
+        return true;
+    }
 }
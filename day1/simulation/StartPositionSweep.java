@@ -0,0 +1,112 @@
+package day1.simulation;
+
+/**
+ * Answers both counting rules for all 100 start positions in one scan.
+ *
+ * <p>
+ * Let {@code r} be the dial offset (mod 100) reached by the steps seen so far
+ * when starting from zero. Starting from {@code s} instead, every later
+ * position is simply shifted by {@code s}:
+ * <ul>
+ * <li><b>Landing on zero</b>: a step ends on zero from start {@code s} exactly
+ * when its prefix residue is {@code -s}, so a histogram of prefix residues
+ * answers every start at once.</li>
+ * <li><b>Passing through zero</b>: a step of magnitude {@code k} always passes
+ * zero {@code k / 100} times, plus once more for the starts whose position
+ * lies within {@code k % 100} clicks of zero in the step's direction. Those
+ * starts form one cyclic range, added in O(1) to a difference array.</li>
+ * </ul>
+ * Each step therefore costs O(1) and the answer vectors cost O(100) to read.
+ *
+ * <p>
+ * Steps may be fed in any number of {@link #accept} calls; the sweep keeps
+ * its offset between calls, so a streamed input gives the same answer as the
+ * whole array. Instances are not thread-safe.
+ */
+public final class StartPositionSweep {
+
+    private static final int DIAL_SIZE = DialTransition.DIAL_SIZE;
+
+    // residues[r] = number of steps whose prefix sum is congruent to r
+    private final long[] residues = new long[DIAL_SIZE];
+    // Difference array over start positions for partial-turn crossings
+    private final long[] crossingDiff = new long[DIAL_SIZE + 1];
+    private long fullTurns = 0;
+    private int offset = 0;
+
+    /**
+     * Adds {@code steps[from, to)} to the sweep.
+     */
+    public void accept(int[] steps, int from, int to) {
+        int r = offset;
+        for (int i = from; i < to; i++) {
+            int step = steps[i];
+            int magnitude = Math.abs(step);
+            int remainder = magnitude % DIAL_SIZE;
+            fullTurns += magnitude / DIAL_SIZE;
+
+            if (remainder != 0) {
+                if (step > 0) {
+                    // Moving right from x passes zero when x is in [100 - rem, 99]
+                    addCyclic(Math.floorMod(DIAL_SIZE - remainder - r, DIAL_SIZE), remainder);
+                } else {
+                    // Moving left from x passes zero when x is in [1, rem]
+                    addCyclic(Math.floorMod(1 - r, DIAL_SIZE), remainder);
+                }
+            }
+
+            r = Math.floorMod(r + step, DIAL_SIZE);
+            residues[r]++;
+        }
+        offset = r;
+    }
+
+    /**
+     * @return {@code landings[s]}, the number of steps that end on zero when
+     *         starting from position {@code s} (Part 1).
+     */
+    public long[] landings() {
+        long[] landings = new long[DIAL_SIZE];
+        for (int start = 0; start < DIAL_SIZE; start++) {
+            landings[start] = residues[(DIAL_SIZE - start) % DIAL_SIZE];
+        }
+        return landings;
+    }
+
+    /**
+     * @return {@code crossings[s]}, the number of times the dial passes through
+     *         zero when starting from position {@code s} (Part 2).
+     */
+    public long[] crossings() {
+        long[] crossings = new long[DIAL_SIZE];
+        long running = 0;
+        for (int start = 0; start < DIAL_SIZE; start++) {
+            running += crossingDiff[start];
+            crossings[start] = fullTurns + running;
+        }
+        return crossings;
+    }
+
+    /**
+     * @return The net displacement of all accepted steps, in {@code [0, 100)}.
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * Adds one to the {@code length} start positions beginning at
+     * {@code first}, wrapping past 99.
+     */
+    private void addCyclic(int first, int length) {
+        int end = first + length;
+        crossingDiff[first]++;
+        if (end <= DIAL_SIZE) {
+            crossingDiff[end]--;
+        } else {
+            crossingDiff[DIAL_SIZE]--;
+            crossingDiff[0]++;
+            crossingDiff[end - DIAL_SIZE]--;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package day1.simulation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads "L49"/"R27" style step lines from a channel into a caller-supplied
+ * {@code int[]} block.
+ *
+ * <p>
+ * Bytes are pulled through a single fixed-size buffer and tokenized with
+ * {@link StepTokenizer} one line-aligned buffer at a time, so memory use is
+ * bounded by the buffer and block sizes regardless of the input length. A
+ * partial line at the end of the buffer is carried over to the next refill.
+ */
+final class StepBlockReader {
+
+    private final ReadableByteChannel channel;
+    private final byte[] bytes;
+    private int byteCount = 0;
+    private boolean endOfInput = false;
+
+    // Steps tokenized from the buffer but not yet handed out
+    private final int[] parsed;
+    private int parsedPosition = 0;
+    private int parsedCount = 0;
+
+    // Net displacement (mod the dial size) of the most recently read block
+    private final DialModulus modulus;
+    private long netDisplacement = 0;
+
+    StepBlockReader(ReadableByteChannel channel, int bufferSize) {
+        this(channel, bufferSize, DialModulus.DEFAULT);
+    }
+
+    StepBlockReader(ReadableByteChannel channel, int bufferSize, DialModulus modulus) {
+        this.channel = channel;
+        this.modulus = modulus;
+        this.bytes = new byte[bufferSize];
+        this.parsed = new int[(bufferSize + 1) / 2];
+    }
+
+    /**
+     * Fills {@code block} with the next steps from the channel.
+     *
+     * @param block The destination array.
+     * @return The number of steps written; 0 once the input is exhausted.
+     * @throws IOException If reading from the channel fails.
+     */
+    int read(int[] block) throws IOException {
+        int count = 0;
+
+        while (count < block.length) {
+            if (parsedPosition == parsedCount && !fill()) {
+                break;
+            }
+            int n = Math.min(block.length - count, parsedCount - parsedPosition);
+            System.arraycopy(parsed, parsedPosition, block, count, n);
+            parsedPosition += n;
+            count += n;
+        }
+
+        netDisplacement = ParallelPrefixScan.netDisplacement(block, 0, count, modulus);
+        return count;
+    }
+
+    /**
+     * @return The net displacement (mod the dial size) of the block returned by the last
+     *         {@link #read(int[])} call.
+     */
+    long netDisplacement() {
+        return netDisplacement;
+    }
+
+    /**
+     * Refills the buffer and tokenizes every complete line in it.
+     *
+     * @return {@code false} once no more steps can be produced.
+     */
+    private boolean fill() throws IOException {
+        while (true) {
+            if (!endOfInput) {
+                int n = channel.read(ByteBuffer.wrap(bytes, byteCount, bytes.length - byteCount));
+                if (n < 0) {
+                    endOfInput = true;
+                } else {
+                    byteCount += n;
+                }
+            }
+
+            int end = endOfInput ? byteCount : StepTokenizer.lastLineEnd(bytes, 0, byteCount);
+            if (end == 0 && !endOfInput) {
+                if (byteCount == bytes.length) {
+                    throw new IOException("Line longer than the read buffer (" + bytes.length + " bytes)");
+                }
+                continue;
+            }
+
+            parsedCount = StepTokenizer.tokenize(bytes, 0, end, parsed, 0);
+            parsedPosition = 0;
+
+            // Carry the partial last line over to the next refill
+            System.arraycopy(bytes, end, bytes, 0, byteCount - end);
+            byteCount -= end;
+
+            if (parsedCount > 0) {
+                return true;
+            }
+            if (endOfInput) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package day1.simulation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Compiled binary form of a step file, kept next to the source as
+ * {@code <name>.steps} and mapped straight into memory on later runs.
+ *
+ * <p>
+ * Layout (header little-endian, {@value #HEADER_SIZE} bytes):
+ * <ul>
+ * <li>magic {@code "DIAL"}, format version, step width in bytes, body byte
+ * order</li>
+ * <li>source file size and modification time, in nanoseconds</li>
+ * <li>step count and CRC-32C of the body</li>
+ * <li>body: one fixed-width signed step per slot, in the byte order recorded
+ * in the header</li>
+ * </ul>
+ * The body is stored exactly as {@link OffHeapSteps} holds steps in memory,
+ * so a valid cache is handed to the kernels without any decoding. A cache is
+ * reused only when the source's size and modification time still match and
+ * the body checksum verifies; otherwise the source is parsed again and the
+ * cache is rewritten.
+ */
+public final class StepCache {
+
+    private static final Logger logger = LogManager.getLogger(StepCache.class);
+
+    /** File name suffix of the cache, appended to the source name. */
+    public static final String SUFFIX = ".steps";
+
+    private static final int MAGIC = 0x4C414944; // "DIAL", little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int NATIVE_ORDER = (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) ? 0 : 1;
+
+    /**
+     * Bytes per checksum and write slice. Buffer views of shared-arena segments
+     * cannot be passed to channels, so the body is copied through a heap slice.
+     */
+    private static final int SLICE_SIZE = 1 << 20;
+
+    private StepCache() {
+    }
+
+    /**
+     * @return The cache file that belongs to {@code source}.
+     */
+    public static Path cachePath(Path source) {
+        return source.resolveSibling(source.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Loads the steps of {@code source}, from its cache if that is still valid.
+     * Otherwise the source is mapped, parsed on {@code pool} and the cache is
+     * rewritten. A cache that cannot be written is logged and skipped.
+     *
+     * @param source The "L49"/"R27" step file.
+     * @param arena  A shared arena that owns the mapping or parsed storage.
+     * @param pool   The pool to parse on when the cache is stale.
+     * @return The steps.
+     * @throws IOException If the source cannot be read.
+     */
+    public static OffHeapSteps load(Path source, Arena arena, ForkJoinPool pool) throws IOException {
+        Path cache = cachePath(source);
+        long sourceSize = Files.size(source);
+        long sourceTime = Files.getLastModifiedTime(source).to(TimeUnit.NANOSECONDS);
+
+        OffHeapSteps cached = map(cache, sourceSize, sourceTime, arena);
+        if (cached != null) {
+            logger.info("Using compiled steps: {}", cache);
+            return cached;
+        }
+
+        OffHeapSteps parsed;
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            MemorySegment input = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            parsed = OffHeapSteps.parse(input, arena, pool);
+        }
+
+        write(cache, parsed, sourceSize, sourceTime);
+        return parsed;
+    }
+
+    /**
+     * @return {@code true} if {@code source} has a cache that
+     *         {@link #load} would reuse.
+     */
+    public static boolean isFresh(Path source) throws IOException {
+        long sourceSize = Files.size(source);
+        long sourceTime = Files.getLastModifiedTime(source).to(TimeUnit.NANOSECONDS);
+        try (Arena arena = Arena.ofConfined()) {
+            return map(cachePath(source), sourceSize, sourceTime, arena) != null;
+        }
+    }
+
+    /**
+     * Maps a cache file and validates it against the source metadata.
+     *
+     * @return The mapped steps, or null if the cache is missing or stale.
+     */
+    private static OffHeapSteps map(Path cache, long sourceSize, long sourceTime, Arena arena) throws IOException {
+        if (!Files.isRegularFile(cache) || Files.size(cache) < HEADER_SIZE) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    break;
+                }
+            }
+            header.flip();
+
+            boolean valid = header.remaining() == HEADER_SIZE
+                    && header.getInt() == MAGIC
+                    && header.getInt() == VERSION
+                    && header.getInt() == Integer.BYTES
+                    && header.getInt() == NATIVE_ORDER
+                    && header.getLong() == sourceSize
+                    && header.getLong() == sourceTime;
+            if (!valid) {
+                return null;
+            }
+            long count = header.getLong();
+            long checksum = header.getLong();
+            if (count < 0 || channel.size() != HEADER_SIZE + count * Integer.BYTES) {
+                return null;
+            }
+
+            MemorySegment body = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, count * Integer.BYTES, arena);
+            if (checksum(body) != checksum) {
+                logger.warn("Step cache checksum mismatch, rebuilding: {}", cache);
+                return null;
+            }
+            return OffHeapSteps.of(body, count);
+        }
+    }
+
+    private static void write(Path cache, OffHeapSteps steps, long sourceSize, long sourceTime) {
+        MemorySegment body = steps.segment().asSlice(0, steps.count() * Integer.BYTES);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(Integer.BYTES).putInt(NATIVE_ORDER);
+        header.putLong(sourceSize).putLong(sourceTime);
+        header.putLong(steps.count()).putLong(checksum(body));
+        header.position(0);
+
+        SidecarFiles.atomicWrite(cache, "step cache", channel -> {
+            SidecarFiles.writeFully(channel, header);
+            byte[] slice = new byte[SLICE_SIZE];
+            for (long offset = 0; offset < body.byteSize(); offset += SLICE_SIZE) {
+                int length = (int) Math.min(SLICE_SIZE, body.byteSize() - offset);
+                MemorySegment.copy(body, ValueLayout.JAVA_BYTE, offset, slice, 0, length);
+                SidecarFiles.writeFully(channel, ByteBuffer.wrap(slice, 0, length));
+            }
+        });
+    }
+
+    private static long checksum(MemorySegment body) {
+        CRC32C crc = new CRC32C();
+        byte[] slice = new byte[SLICE_SIZE];
+        for (long offset = 0; offset < body.byteSize(); offset += SLICE_SIZE) {
+            int length = (int) Math.min(SLICE_SIZE, body.byteSize() - offset);
+            MemorySegment.copy(body, ValueLayout.JAVA_BYTE, offset, slice, 0, length);
+            crc.update(slice, 0, length);
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,281 @@
+package day1.simulation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Sidecar index of an append-only step file, kept next to the source as
+ * {@code <name>.index}.
+ *
+ * <p>
+ * The file is cut into blocks of a fixed number of step lines. For every
+ * block the index stores what a {@link StartPositionSweep} computes: the net
+ * displacement and the Part 1 and Part 2 counts for each of the 100 start
+ * positions. {@link #fold} chains the blocks from any start position in
+ * O(blocks) without touching the source, so after an append only the new
+ * bytes are parsed: complete new blocks are summarized and added to the index,
+ * and the steps after the last complete block are left to the caller.
+ *
+ * <p>
+ * Layout (little-endian):
+ * <ul>
+ * <li>header, {@value #HEADER_SIZE} bytes: magic {@code "DIDX"}, format
+ * version, steps per block, block count, indexed source bytes, CRC-32C of the
+ * last indexed source bytes</li>
+ * <li>per block: displacement, then 100 landing and 100 crossing counts</li>
+ * </ul>
+ * The source is assumed to only grow. The index is rebuilt from scratch when
+ * the source is shorter than the indexed prefix, when the bytes just before
+ * the end of that prefix changed, or when another block size is requested.
+ */
+public final class StepIndex {
+
+    private static final Logger logger = LogManager.getLogger(StepIndex.class);
+
+    /** File name suffix of the index, appended to the source name. */
+    public static final String SUFFIX = ".index";
+
+    private static final int MAGIC = 0x58444944; // "DIDX", little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+    private static final int DIAL_SIZE = DialTransition.DIAL_SIZE;
+    private static final int RECORD_SIZE = Integer.BYTES + 2 * DIAL_SIZE * Long.BYTES;
+
+    /** Number of source bytes before the indexed end that guard against rewrites. */
+    private static final int FINGERPRINT_BYTES = 4096;
+
+    private final int blockSize;
+    private final int blockCount;
+    private final long indexedBytes;
+    private final int[] deltas;
+    // Block b, start s at [b * 100 + s]
+    private final long[] landings;
+    private final long[] crossings;
+
+    private StepIndex(int blockSize, int blockCount, long indexedBytes, int[] deltas, long[] landings,
+            long[] crossings) {
+        this.blockSize = blockSize;
+        this.blockCount = blockCount;
+        this.indexedBytes = indexedBytes;
+        this.deltas = deltas;
+        this.landings = landings;
+        this.crossings = crossings;
+    }
+
+    /**
+     * @return The index file that belongs to {@code source}.
+     */
+    public static Path indexPath(Path source) {
+        return source.resolveSibling(source.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Loads the index of {@code source} and extends it with every complete
+     * block appended since it was written. An index that no longer matches the
+     * source is rebuilt. An index that cannot be written is logged and skipped.
+     *
+     * @param source    The "L49"/"R27" step file.
+     * @param blockSize The number of steps per block.
+     * @return The up-to-date index.
+     * @throws IOException If the source cannot be read.
+     */
+    public static StepIndex update(Path source, int blockSize) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        Path indexFile = indexPath(source);
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+                Arena arena = Arena.ofConfined()) {
+            MemorySegment input = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+
+            StepIndex index = load(indexFile, input, blockSize);
+            if (index == null) {
+                index = new StepIndex(blockSize, 0, 0, new int[0], new long[0], new long[0]);
+            }
+            StepIndex extended = index.extend(input);
+            if (extended.blockCount == index.blockCount) {
+                return index;
+            }
+
+            logger.info("Indexed {} new blocks of {}", extended.blockCount - index.blockCount, source);
+            extended.write(indexFile, input);
+            return extended;
+        }
+    }
+
+    /**
+     * Adds the counts of every indexed block, starting from
+     * {@code result.position()}, and leaves the position after the last block.
+     */
+    public void fold(SimulationResult result) {
+        int position = Math.floorMod(result.position(), DIAL_SIZE);
+        long landed = 0;
+        long crossed = 0;
+        for (int b = 0; b < blockCount; b++) {
+            landed += landings[b * DIAL_SIZE + position];
+            crossed += crossings[b * DIAL_SIZE + position];
+            position = (position + deltas[b]) % DIAL_SIZE;
+        }
+        result.add(landed, crossed, indexedSteps(), position);
+    }
+
+    /**
+     * @return The number of steps per block.
+     */
+    public int blockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return The number of indexed blocks.
+     */
+    public int blockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @return The number of steps covered by the index.
+     */
+    public long indexedSteps() {
+        return (long) blockCount * blockSize;
+    }
+
+    /**
+     * @return The source offset where the unindexed tail begins. It always
+     *         falls at the start of a line.
+     */
+    public long indexedBytes() {
+        return indexedBytes;
+    }
+
+    /**
+     * Summarizes every complete block of {@code input} after the indexed
+     * prefix. A block is complete once its last step line ends in a newline,
+     * so a line that is still being written is never indexed.
+     */
+    private StepIndex extend(MemorySegment input) {
+        int[] newDeltas = Arrays.copyOf(deltas, Math.max(blockCount, 16));
+        long[] newLandings = Arrays.copyOf(landings, newDeltas.length * DIAL_SIZE);
+        long[] newCrossings = Arrays.copyOf(crossings, newDeltas.length * DIAL_SIZE);
+        int count = blockCount;
+        long end = indexedBytes;
+
+        int[] steps = new int[blockSize];
+        MemorySegment stepSegment = MemorySegment.ofArray(steps);
+        long blockStart = end;
+        int markers = 0;
+        for (long i = end; i < input.byteSize(); i++) {
+            byte b = input.get(ValueLayout.JAVA_BYTE, i);
+            if (b == 'L' || b == 'R') {
+                markers++;
+            } else if (b == '\n' && markers == blockSize) {
+                StepTokenizer.tokenize(input, blockStart, i + 1, stepSegment, 0);
+                StartPositionSweep sweep = new StartPositionSweep();
+                sweep.accept(steps, 0, blockSize);
+
+                if (count == newDeltas.length) {
+                    newDeltas = Arrays.copyOf(newDeltas, count * 2);
+                    newLandings = Arrays.copyOf(newLandings, count * 2 * DIAL_SIZE);
+                    newCrossings = Arrays.copyOf(newCrossings, count * 2 * DIAL_SIZE);
+                }
+                newDeltas[count] = sweep.offset();
+                System.arraycopy(sweep.landings(), 0, newLandings, count * DIAL_SIZE, DIAL_SIZE);
+                System.arraycopy(sweep.crossings(), 0, newCrossings, count * DIAL_SIZE, DIAL_SIZE);
+                count++;
+
+                blockStart = i + 1;
+                markers = 0;
+            }
+        }
+        return new StepIndex(blockSize, count, blockStart, newDeltas, newLandings, newCrossings);
+    }
+
+    /**
+     * Reads an index file and validates it against the source.
+     *
+     * @return The index, or null if it is missing or no longer matches.
+     */
+    private static StepIndex load(Path indexFile, MemorySegment input, int blockSize) throws IOException {
+        if (!Files.isRegularFile(indexFile) || Files.size(indexFile) < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexFile)).order(ByteOrder.LITTLE_ENDIAN);
+        boolean valid = buffer.getInt() == MAGIC
+                && buffer.getInt() == VERSION
+                && buffer.getInt() == blockSize;
+        buffer.getInt(); // reserved
+        int count = buffer.getInt();
+        buffer.getInt(); // reserved
+        long indexedBytes = buffer.getLong();
+        long fingerprint = buffer.getLong();
+        valid = valid
+                && count >= 0
+                && buffer.capacity() == HEADER_SIZE + (long) count * RECORD_SIZE
+                && indexedBytes <= input.byteSize()
+                && fingerprint(input, indexedBytes) == fingerprint;
+        if (!valid) {
+            logger.info("Step index is stale, rebuilding: {}", indexFile);
+            return null;
+        }
+
+        buffer.position(HEADER_SIZE);
+        int[] deltas = new int[count];
+        long[] landings = new long[count * DIAL_SIZE];
+        long[] crossings = new long[count * DIAL_SIZE];
+        for (int b = 0; b < count; b++) {
+            deltas[b] = buffer.getInt();
+            for (int s = 0; s < DIAL_SIZE; s++) {
+                landings[b * DIAL_SIZE + s] = buffer.getLong();
+            }
+            for (int s = 0; s < DIAL_SIZE; s++) {
+                crossings[b * DIAL_SIZE + s] = buffer.getLong();
+            }
+        }
+        return new StepIndex(blockSize, count, indexedBytes, deltas, landings, crossings);
+    }
+
+    private void write(Path indexFile, MemorySegment input) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + blockCount * RECORD_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(blockSize).putInt(0);
+        buffer.putInt(blockCount).putInt(0);
+        buffer.putLong(indexedBytes).putLong(fingerprint(input, indexedBytes));
+        buffer.position(HEADER_SIZE);
+        for (int b = 0; b < blockCount; b++) {
+            buffer.putInt(deltas[b]);
+            for (int s = 0; s < DIAL_SIZE; s++) {
+                buffer.putLong(landings[b * DIAL_SIZE + s]);
+            }
+            for (int s = 0; s < DIAL_SIZE; s++) {
+                buffer.putLong(crossings[b * DIAL_SIZE + s]);
+            }
+        }
+
+        buffer.position(0);
+        SidecarFiles.atomicWrite(indexFile, "step index", channel -> SidecarFiles.writeFully(channel, buffer));
+    }
+
+    /**
+     * @return The CRC-32C of the source bytes just before {@code end}.
+     */
+    private static long fingerprint(MemorySegment input, long end) {
+        long from = Math.max(0, end - FINGERPRINT_BYTES);
+        byte[] bytes = input.asSlice(from, end - from).toArray(ValueLayout.JAVA_BYTE);
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,423 @@
+package day1.simulation;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * SIMD tokenizer for the "L49"/"R27" step format.
+ *
+ * <p>
+ * Each iteration compares a whole {@link ByteVector} against 'L', 'R', '\n'
+ * and '\r' and turns the results into bit masks. Step markers are then
+ * visited by walking the set bits, and the digit run of each step is bounded
+ * by the next terminator bit, so the hot loop never branches on individual
+ * bytes. Only a step whose digits run past the end of the current vector
+ * falls back to a scalar digit scan.
+ *
+ * <p>
+ * The {@link MemorySegment} overloads do the same over mapped files and
+ * off-heap step storage, with {@code long} offsets, so inputs larger than
+ * 2 GB can be tokenized without a heap copy.
+ */
+public final class StepTokenizer {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    /** Size of the scratch buffer used when tokenizing a {@link ByteBuffer}. */
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private StepTokenizer() {
+    }
+
+    /**
+     * Tokenizes the steps in {@code src[from, to)}. The range must end on a line
+     * boundary or at the end of the input; a step cut off at {@code to} is
+     * parsed from the bytes that are present.
+     *
+     * @param src     The input bytes.
+     * @param from    First byte to read (inclusive).
+     * @param to      Last byte to read (exclusive).
+     * @param dst     The destination for the signed steps. Must have room for
+     *                {@code (to - from + 1) / 2} steps.
+     * @param dstFrom The first index of {@code dst} to write.
+     * @return The number of steps written.
+     */
+    public static int tokenize(byte[] src, int from, int to, int[] dst, int dstFrom) {
+        int count = dstFrom;
+        int i = from;
+        int loopBound = from + SPECIES.loopBound(to - from);
+
+        // Vectorized loop: classify a whole vector of bytes at once
+        for (; i < loopBound; i += SPECIES.length()) {
+            ByteVector v = ByteVector.fromArray(SPECIES, src, i);
+            long lefts = v.eq((byte) 'L').toLong();
+            long markers = lefts | v.eq((byte) 'R').toLong();
+            long terminators = v.eq((byte) '\n').or(v.eq((byte) '\r')).toLong();
+
+            while (markers != 0) {
+                int lane = Long.numberOfTrailingZeros(markers);
+                markers &= markers - 1;
+
+                int digitsStart = i + lane + 1;
+                // Terminators after the marker; a shift by 64 would wrap, so guard the top lane
+                long following = (lane == 63) ? 0 : terminators >>> (lane + 1);
+                int digitsEnd = (following != 0)
+                        ? digitsStart + Long.numberOfTrailingZeros(following)
+                        : scanDigits(src, digitsStart, to);
+
+                int value = parseDigits(src, digitsStart, digitsEnd);
+                dst[count++] = ((lefts >>> lane) & 1) != 0 ? -value : value;
+            }
+        }
+
+        // Tail loop: scalar scan for the remaining markers
+        for (; i < to; i++) {
+            byte b = src[i];
+            if (b == 'L' || b == 'R') {
+                int digitsEnd = scanDigits(src, i + 1, to);
+                int value = parseDigits(src, i + 1, digitsEnd);
+                dst[count++] = (b == 'L') ? -value : value;
+                i = digitsEnd - 1;
+            }
+        }
+
+        return count - dstFrom;
+    }
+
+    /**
+     * Tokenizes the steps in {@code src[from, to)} into 16-bit slots, with the
+     * same range rules as {@link #tokenize(byte[], int, int, int[], int)}.
+     *
+     * @return The number of steps written, or {@code -1} as soon as a step's
+     *         magnitude does not fit in a {@code short}; {@code dst} is then
+     *         partially written and the input should be tokenized into an
+     *         {@code int[]} instead.
+     */
+    public static int tokenize(byte[] src, int from, int to, short[] dst, int dstFrom) {
+        int count = dstFrom;
+        int i = from;
+        int loopBound = from + SPECIES.loopBound(to - from);
+
+        for (; i < loopBound; i += SPECIES.length()) {
+            ByteVector v = ByteVector.fromArray(SPECIES, src, i);
+            long lefts = v.eq((byte) 'L').toLong();
+            long markers = lefts | v.eq((byte) 'R').toLong();
+            long terminators = v.eq((byte) '\n').or(v.eq((byte) '\r')).toLong();
+
+            while (markers != 0) {
+                int lane = Long.numberOfTrailingZeros(markers);
+                markers &= markers - 1;
+
+                int digitsStart = i + lane + 1;
+                long following = (lane == 63) ? 0 : terminators >>> (lane + 1);
+                int digitsEnd = (following != 0)
+                        ? digitsStart + Long.numberOfTrailingZeros(following)
+                        : scanDigits(src, digitsStart, to);
+
+                int value = parseDigits(src, digitsStart, digitsEnd);
+                if (value > Short.MAX_VALUE || digitsEnd - digitsStart > 5) {
+                    return -1;
+                }
+                dst[count++] = (short) (((lefts >>> lane) & 1) != 0 ? -value : value);
+            }
+        }
+
+        for (; i < to; i++) {
+            byte b = src[i];
+            if (b == 'L' || b == 'R') {
+                int digitsEnd = scanDigits(src, i + 1, to);
+                int value = parseDigits(src, i + 1, digitsEnd);
+                if (value > Short.MAX_VALUE || digitsEnd - i - 1 > 5) {
+                    return -1;
+                }
+                dst[count++] = (short) ((b == 'L') ? -value : value);
+                i = digitsEnd - 1;
+            }
+        }
+
+        return count - dstFrom;
+    }
+
+    /**
+     * Tokenizes the remaining bytes of {@code buffer}, advancing its position to
+     * the limit. Array-backed buffers are read in place; other buffers are
+     * copied through a fixed-size scratch block aligned to line boundaries.
+     *
+     * @param buffer The input buffer.
+     * @param dst    The destination for the signed steps. Must have room for
+     *               {@code (buffer.remaining() + 1) / 2} steps.
+     * @return The number of steps written.
+     */
+    public static int tokenize(ByteBuffer buffer, int[] dst) {
+        return tokenize(buffer, (block, from, to, dstFrom) -> tokenize(block, from, to, dst, dstFrom));
+    }
+
+    /**
+     * Tokenizes the remaining bytes of {@code buffer} into 16-bit slots,
+     * advancing its position to the limit.
+     *
+     * @param buffer The input buffer.
+     * @param dst    The destination for the signed steps. Must have room for
+     *               {@code (buffer.remaining() + 1) / 2} steps.
+     * @return The number of steps written, or {@code -1} if a step's
+     *         magnitude does not fit in a {@code short}.
+     */
+    public static int tokenize(ByteBuffer buffer, short[] dst) {
+        return tokenize(buffer, (block, from, to, dstFrom) -> tokenize(block, from, to, dst, dstFrom));
+    }
+
+    /**
+     * Tokenizes one line-aligned byte range into a fixed destination.
+     */
+    private interface RangeTokenizer {
+        /**
+         * @return The number of steps written, or {@code -1} to abort.
+         */
+        int tokenize(byte[] src, int from, int to, int dstFrom);
+    }
+
+    private static int tokenize(ByteBuffer buffer, RangeTokenizer ranges) {
+        if (buffer.hasArray()) {
+            int start = buffer.arrayOffset() + buffer.position();
+            int count = ranges.tokenize(buffer.array(), start, start + buffer.remaining(), 0);
+            buffer.position(buffer.limit());
+            return count;
+        }
+
+        byte[] block = new byte[Math.min(BLOCK_SIZE, Math.max(buffer.remaining(), 1))];
+        int carried = 0;
+        int count = 0;
+
+        while (buffer.hasRemaining()) {
+            int n = Math.min(block.length - carried, buffer.remaining());
+            buffer.get(block, carried, n);
+            int filled = carried + n;
+
+            // Only tokenize complete lines unless this is the last block
+            int end = buffer.hasRemaining() ? lastLineEnd(block, 0, filled) : filled;
+            if (end == 0) {
+                if (filled == block.length) {
+                    // A single line longer than the block; grow to fit it
+                    block = Arrays.copyOf(block, block.length * 2);
+                }
+                carried = filled;
+                continue;
+            }
+
+            int written = ranges.tokenize(block, 0, end, count);
+            if (written < 0) {
+                buffer.position(buffer.limit());
+                return -1;
+            }
+            count += written;
+            carried = filled - end;
+            System.arraycopy(block, end, block, 0, carried);
+        }
+
+        if (carried > 0) {
+            int written = ranges.tokenize(block, 0, carried, count);
+            if (written < 0) {
+                return -1;
+            }
+            count += written;
+        }
+        return count;
+    }
+
+    /**
+     * Splits the remaining bytes of {@code buffer} into {@code parts} ranges
+     * whose boundaries fall just after a newline, so no step is cut in two.
+     * The buffer's position is not modified.
+     *
+     * @param buffer The input buffer.
+     * @param parts  The desired number of ranges.
+     * @return {@code parts + 1} absolute buffer indices; range {@code i} is
+     *         {@code [bounds[i], bounds[i + 1])}. Ranges may be empty.
+     */
+    public static int[] splitLines(ByteBuffer buffer, int parts) {
+        int start = buffer.position();
+        int end = buffer.limit();
+        int chunkSize = (end - start) / parts;
+
+        int[] bounds = new int[parts + 1];
+        bounds[0] = start;
+        for (int p = 1; p < parts; p++) {
+            int boundary = Math.max(bounds[p - 1], start + p * chunkSize);
+            // Align to the byte after the next newline
+            while (boundary < end && boundary > start && buffer.get(boundary - 1) != '\n') {
+                boundary++;
+            }
+            bounds[p] = boundary;
+        }
+        bounds[parts] = end;
+        return bounds;
+    }
+
+    /**
+     * Tokenizes the steps in {@code src[from, to)} into the {@code int} slots of
+     * {@code dst}. The same range rules as
+     * {@link #tokenize(byte[], int, int, int[], int)} apply.
+     *
+     * @param src     The input bytes.
+     * @param from    First byte offset to read (inclusive).
+     * @param to      Last byte offset to read (exclusive).
+     * @param dst     The destination for the signed steps. Must have room for
+     *                {@link #countSteps} steps after {@code dstFrom}.
+     * @param dstFrom The first {@code int} index of {@code dst} to write.
+     * @return The number of steps written.
+     */
+    public static long tokenize(MemorySegment src, long from, long to, MemorySegment dst, long dstFrom) {
+        long count = dstFrom;
+        long i = from;
+        long loopBound = from + SPECIES.loopBound(to - from);
+
+        // Vectorized loop: classify a whole vector of bytes at once
+        for (; i < loopBound; i += SPECIES.length()) {
+            ByteVector v = ByteVector.fromMemorySegment(SPECIES, src, i, ByteOrder.nativeOrder());
+            long lefts = v.eq((byte) 'L').toLong();
+            long markers = lefts | v.eq((byte) 'R').toLong();
+            long terminators = v.eq((byte) '\n').or(v.eq((byte) '\r')).toLong();
+
+            while (markers != 0) {
+                int lane = Long.numberOfTrailingZeros(markers);
+                markers &= markers - 1;
+
+                long digitsStart = i + lane + 1;
+                long following = (lane == 63) ? 0 : terminators >>> (lane + 1);
+                long digitsEnd = (following != 0)
+                        ? digitsStart + Long.numberOfTrailingZeros(following)
+                        : scanDigits(src, digitsStart, to);
+
+                int value = parseDigits(src, digitsStart, digitsEnd);
+                dst.setAtIndex(ValueLayout.JAVA_INT, count++, ((lefts >>> lane) & 1) != 0 ? -value : value);
+            }
+        }
+
+        // Tail loop: scalar scan for the remaining markers
+        for (; i < to; i++) {
+            byte b = src.get(ValueLayout.JAVA_BYTE, i);
+            if (b == 'L' || b == 'R') {
+                long digitsEnd = scanDigits(src, i + 1, to);
+                int value = parseDigits(src, i + 1, digitsEnd);
+                dst.setAtIndex(ValueLayout.JAVA_INT, count++, (b == 'L') ? -value : value);
+                i = digitsEnd - 1;
+            }
+        }
+
+        return count - dstFrom;
+    }
+
+    /**
+     * Counts the steps in {@code src[from, to)} without parsing them: every 'L'
+     * or 'R' byte starts exactly one step. Used to size off-heap step storage
+     * exactly before tokenizing.
+     */
+    public static long countSteps(MemorySegment src, long from, long to) {
+        long count = 0;
+        long i = from;
+        long loopBound = from + SPECIES.loopBound(to - from);
+
+        for (; i < loopBound; i += SPECIES.length()) {
+            ByteVector v = ByteVector.fromMemorySegment(SPECIES, src, i, ByteOrder.nativeOrder());
+            count += v.eq((byte) 'L').or(v.eq((byte) 'R')).trueCount();
+        }
+        for (; i < to; i++) {
+            byte b = src.get(ValueLayout.JAVA_BYTE, i);
+            if (b == 'L' || b == 'R') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Splits {@code src} into {@code parts} ranges whose boundaries fall just
+     * after a newline, like {@link #splitLines(ByteBuffer, int)}.
+     *
+     * @return {@code parts + 1} byte offsets; range {@code i} is
+     *         {@code [bounds[i], bounds[i + 1])}. Ranges may be empty.
+     */
+    public static long[] splitLines(MemorySegment src, int parts) {
+        long end = src.byteSize();
+        long chunkSize = end / parts;
+
+        long[] bounds = new long[parts + 1];
+        for (int p = 1; p < parts; p++) {
+            long boundary = Math.max(bounds[p - 1], p * chunkSize);
+            // Align to the byte after the next newline
+            while (boundary < end && boundary > 0 && src.get(ValueLayout.JAVA_BYTE, boundary - 1) != '\n') {
+                boundary++;
+            }
+            bounds[p] = boundary;
+        }
+        bounds[parts] = end;
+        return bounds;
+    }
+
+    /**
+     * Finds the end of the last complete line in {@code src[from, to)}.
+     *
+     * @return The index just past the last '\n', or {@code from} if the range
+     *         holds no newline.
+     */
+    public static int lastLineEnd(byte[] src, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (src[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return from;
+    }
+
+    private static int scanDigits(byte[] src, int from, int to) {
+        int i = from;
+        while (i < to && src[i] >= '0' && src[i] <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    private static long scanDigits(MemorySegment src, long from, long to) {
+        long i = from;
+        while (i < to) {
+            byte b = src.get(ValueLayout.JAVA_BYTE, i);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int parseDigits(byte[] src, int from, int to) {
+        // Day 1 steps are at most three digits; unroll the common lengths
+        switch (to - from) {
+            case 1:
+                return src[from] - '0';
+            case 2:
+                return (src[from] - '0') * 10 + (src[from + 1] - '0');
+            case 3:
+                return (src[from] - '0') * 100 + (src[from + 1] - '0') * 10 + (src[from + 2] - '0');
+            default:
+                int value = 0;
+                for (int i = from; i < to; i++) {
+                    value = value * 10 + (src[i] - '0');
+                }
+                return value;
+        }
+    }
+
+    private static int parseDigits(MemorySegment src, long from, long to) {
+        int value = 0;
+        for (long i = from; i < to; i++) {
+            value = value * 10 + (src.get(ValueLayout.JAVA_BYTE, i) - '0');
+        }
+        return value;
+    }
+}
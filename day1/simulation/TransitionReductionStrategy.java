@@ -0,0 +1,118 @@
+package day1.simulation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.util.Optional;
+
+import day1.simulation.VectorizedSimulationStrategy.SimulationType;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * A simulation strategy that reduces the steps to a single transition summary
+ * with fork/join.
+ *
+ * <p>
+ * Leaves of at most {@code LEAF_SIZE} steps are summarized independently as a
+ * {@link DialTransition} (Part 1) or {@link CrossingTransition} (Part 2), and
+ * sibling summaries are merged on the way back up. Because both summaries are
+ * associative and cover every start position, the reduction needs no start
+ * positions and no barrier between phases; the answer for the initial
+ * position is read off the root.
+ */
+public class TransitionReductionStrategy implements SimulationStrategy {
+
+    private static final Logger logger = LogManager.getLogger(TransitionReductionStrategy.class);
+
+    /** Maximum number of steps summarized by a single leaf task. */
+    private static final int LEAF_SIZE = 64 * 1024;
+
+    private final SimulationType type;
+    private final ForkJoinPool pool;
+
+    public TransitionReductionStrategy(SimulationType type) {
+        this(type, ForkJoinPool.commonPool());
+    }
+
+    public TransitionReductionStrategy(SimulationType type, ForkJoinPool pool) {
+        this.type = type;
+        this.pool = pool;
+    }
+
+    @Override
+    public Optional<Integer> run(int[] steps, int initialPosition) {
+        try {
+            if (type == SimulationType.PART1_LAND_ON_ZERO) {
+                DialTransition total = pool.invoke(new Reduction<>(steps, 0, steps.length,
+                        DialTransition::ofSteps, DialTransition::merge));
+                return VectorizedSimulationStrategy.intCount(total.hits(initialPosition));
+            }
+            CrossingTransition total = pool.invoke(new Reduction<>(steps, 0, steps.length,
+                    CrossingTransition::ofSteps, CrossingTransition::merge));
+            return VectorizedSimulationStrategy.intCount(total.crossings(initialPosition));
+        } catch (RuntimeException e) {
+            logger.error("Simulation failed", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reduces the steps to both summaries and reads the counts for
+     * {@code result.position()} off their roots.
+     */
+    @Override
+    public boolean run(int[] steps, SimulationResult result) {
+        try {
+            int start = Math.floorMod(result.position(), DialTransition.DIAL_SIZE);
+            DialTransition landings = pool.invoke(new Reduction<>(steps, 0, steps.length,
+                    DialTransition::ofSteps, DialTransition::merge));
+            CrossingTransition crossings = pool.invoke(new Reduction<>(steps, 0, steps.length,
+                    CrossingTransition::ofSteps, CrossingTransition::merge));
+            result.add(landings.hits(start), crossings.crossings(start), steps.length,
+                    (start + landings.delta()) % DialTransition.DIAL_SIZE);
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Simulation failed", e);
+            return false;
+        }
+    }
+
+    /**
+     * Builds the summary of a leaf range of steps.
+     */
+    @FunctionalInterface
+    interface LeafSummary<T> {
+        T summarize(int[] steps, int from, int to);
+    }
+
+    @SuppressWarnings("serial")
+    private static final class Reduction<T> extends RecursiveTask<T> {
+        private final int[] steps;
+        private final int from;
+        private final int to;
+        private final LeafSummary<T> leaf;
+        private final BinaryOperator<T> merge;
+
+        Reduction(int[] steps, int from, int to, LeafSummary<T> leaf, BinaryOperator<T> merge) {
+            this.steps = steps;
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+            this.merge = merge;
+        }
+
+        @Override
+        protected T compute() {
+            if (to - from <= LEAF_SIZE) {
+                return leaf.summarize(steps, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            Reduction<T> left = new Reduction<>(steps, from, mid, leaf, merge);
+            left.fork();
+            T right = new Reduction<>(steps, mid, to, leaf, merge).compute();
+            // Order matters: the left half always runs first
+            return merge.apply(left.join(), right);
+        }
+    }
+}
@@ -3,26 +3,75 @@ package day1.simulation;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import java.util.Optional;
-import jdk.incubator.vector.IntVector;
-import jdk.incubator.vector.VectorMask;
-import jdk.incubator.vector.VectorOperators;
 import jdk.incubator.vector.VectorSpecies;
 
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * A simulation strategy that uses the Vector API and a thread pool to optimize
- * performance. It uses a prefix sum approach to determine the start position of
- * each step, and then uses SIMD operations to count crossings for multiple
- * steps in parallel.
+ * A simulation strategy that uses the Vector API and a fork/join pool to
+ * optimize performance. A {@link ParallelPrefixScan} determines the start
+ * position of every chunk in parallel, and each chunk then derives the
+ * position of every step with an in-register prefix sum and uses SIMD
+ * operations to count crossings for multiple steps at once.
+ *
+ * <p>
+ * The dial size defaults to 100 but may be any positive modulus. Positions are
+ * reduced with the multiply-and-shift constants of a {@link DialModulus}
+ * instead of {@code IntVector.div}, which has no SIMD instruction behind it,
+ * so the kernels stay vectorized whatever the dial size.
+ *
+ * <p>
+ * The pool is long-lived and shared across runs. It is either owned by the
+ * strategy (and shut down by {@link #close()}) or injected by the caller, who
+ * then remains responsible for its lifecycle. Inputs too small to give every
+ * thread a few vectors of work are simulated on the calling thread. Larger
+ * inputs are not cut into one slice per thread: the scan tree is split
+ * recursively down to leaves of a fixed size, and every fork can be stolen by
+ * an idle worker, so a preempted or slower core delays the run by at most a
+ * leaf. The leaves' net displacements are still combined up the tree before
+ * any leaf is counted, so every leaf starts from its exact position.
+ *
+ * <p>
+ * {@link #run(ByteBuffer, int)} also parses the raw step file: the buffer is
+ * split into line-aligned ranges that are tokenized concurrently, and each
+ * parsed segment starts counting as soon as the segments before it have
+ * reported their net displacement, so parsing and counting overlap.
+ *
+ * <p>
+ * Steps whose magnitudes fit in 16 bits can be kept in a {@code short[]}
+ * ({@link #run(short[], int)}), which halves memory traffic and doubles the
+ * lanes per prefix-sum instruction. {@link #run(ByteBuffer, int)} picks that
+ * layout automatically whenever the parser finds no wider step. Positions are
+ * widened to {@code int} lanes only for the modulus reduction, and a vector
+ * whose steps could overflow the 16-bit prefix sum is widened before it.
+ *
+ * <p>
+ * {@link #run(OffHeapSteps, int)} runs the same scan and kernels over steps
+ * stored off-heap, for inputs too large for a heap array.
+ *
+ * <p>
+ * The runs that take a {@link SimulationResult} count Part 1 and Part 2
+ * together, whatever the strategy's {@link SimulationType}: every vector of
+ * positions is derived once and checked against both rules, so one parse and
+ * one pass over the prefix sums answer both parts. On the scan, the
+ * displacement up-sweep still runs before that pass to give every leaf its
+ * start position; the final position is read from the merged leaf results.
+ *
+ * <p>
+ * Every run accepts an optional {@link SimulationListener}. The scan reports
+ * both sweeps and every chunk in them; the parsing pipeline overlaps its
+ * phases, so it reports parse, start position wait and count times per chunk,
+ * plus the time until the last chunk was parsed.
  */
-public class VectorizedSimulationStrategy implements SimulationStrategy {
+public class VectorizedSimulationStrategy implements SimulationStrategy, AutoCloseable {
 
     public enum SimulationType {
         PART1_LAND_ON_ZERO,
@@ -30,234 +79,712 @@ public class VectorizedSimulationStrategy implements SimulationStrategy {
     }
 
     private static final Logger logger = LogManager.getLogger(VectorizedSimulationStrategy.class);
-    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> SPECIES = DialKernels.SPECIES;
+    private static final VectorSpecies<Short> NARROW_SPECIES = DialKernels.NARROW_SPECIES;
+    private static final String SPECIES_NAME = SPECIES.toString();
+    private static final String NARROW_SPECIES_NAME = NARROW_SPECIES.toString();
+
+    /** Minimum number of full vectors per chunk before a run is split across threads. */
+    private static final int MIN_VECTORS_PER_CHUNK = 4;
+    private static final int MIN_CHUNK_SIZE = MIN_VECTORS_PER_CHUNK * SPECIES.length();
+
+    /**
+     * Steps per leaf of the scan tree once an input has more than a leaf's
+     * worth per worker. Many small leaves let idle workers steal what is left
+     * of a slow worker's share instead of waiting for it; 128 KB of
+     * {@code int} steps still sit in L2 while a leaf is counted.
+     */
+    private static final int LEAF_SIZE = 32 * 1024;
+
+    /** Upper bound on leaves per worker, which bounds the scan tree for huge inputs. */
+    private static final int MAX_LEAVES_PER_WORKER = 64;
+
+    /** Minimum number of input bytes per chunk before parsing is split across threads. */
+    private static final int MIN_PARSE_CHUNK_BYTES = 16 * 1024;
+
+    /** Input bytes per parsing chunk once a file has more than a chunk's worth per worker. */
+    private static final int PARSE_CHUNK_BYTES = 256 * 1024;
+
     private final SimulationType type;
+    private final DialModulus modulus;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final ParallelPrefixScan scan;
+    private final ParallelPrefixScan.LeafKernel kernel;
+    private final ParallelPrefixScan.NarrowLeafKernel narrowKernel;
+    private final ParallelPrefixScan.FusedLeafKernel fusedKernel;
+    private final ParallelPrefixScan.NarrowFusedLeafKernel narrowFusedKernel;
 
     public VectorizedSimulationStrategy() {
         this(SimulationType.PART2_CROSS_ZERO);
     }
 
     public VectorizedSimulationStrategy(SimulationType type) {
+        this(type, DialTransition.DIAL_SIZE);
+    }
+
+    /**
+     * Creates a strategy for a dial with {@code modulus} positions.
+     *
+     * @param type    The counting rule to apply.
+     * @param modulus The number of positions on the dial.
+     */
+    public VectorizedSimulationStrategy(SimulationType type, int modulus) {
+        // ForkJoinPool workers are daemon threads, so an unclosed strategy never
+        // keeps the JVM alive
+        this(type, new DialModulus(modulus), new ForkJoinPool(Runtime.getRuntime().availableProcessors()), true);
+    }
+
+    /**
+     * Creates a strategy that runs on a caller-supplied pool. The pool is not
+     * shut down by {@link #close()}.
+     *
+     * @param type The counting rule to apply.
+     * @param pool The fork/join pool to run the scan on.
+     */
+    public VectorizedSimulationStrategy(SimulationType type, ForkJoinPool pool) {
+        this(type, DialTransition.DIAL_SIZE, pool);
+    }
+
+    /**
+     * Creates a strategy for a dial with {@code modulus} positions that runs on
+     * a caller-supplied pool. The pool is not shut down by {@link #close()}.
+     *
+     * @param type    The counting rule to apply.
+     * @param modulus The number of positions on the dial.
+     * @param pool    The fork/join pool to run the scan on.
+     */
+    public VectorizedSimulationStrategy(SimulationType type, int modulus, ForkJoinPool pool) {
+        this(type, new DialModulus(modulus), pool, false);
+    }
+
+    private VectorizedSimulationStrategy(SimulationType type, DialModulus modulus, ForkJoinPool pool,
+            boolean ownsPool) {
         this.type = type;
+        this.modulus = modulus;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.scan = new ParallelPrefixScan(pool, modulus);
+        boolean landings = type == SimulationType.PART1_LAND_ON_ZERO;
+        this.kernel = landings
+                ? (steps, from, to, start) -> DialKernels.countLandings(steps, from, to, start, modulus)
+                : (steps, from, to, start) -> DialKernels.countCrossings(steps, from, to, start, modulus);
+        this.narrowKernel = landings
+                ? (steps, from, to, start) -> DialKernels.countLandings(steps, from, to, start, modulus)
+                : (steps, from, to, start) -> DialKernels.countCrossings(steps, from, to, start, modulus);
+        this.fusedKernel = (steps, from, to, leaf) -> DialKernels.countBoth(steps, from, to, modulus, leaf);
+        this.narrowFusedKernel = (steps, from, to, leaf) -> DialKernels.countBoth(steps, from, to, modulus, leaf);
+    }
+
+    /**
+     * @return The number of positions on the dial.
+     */
+    @Override
+    public int modulus() {
+        return modulus.modulus();
     }
 
     @Override
     public Optional<Integer> run(int[] steps, int initialPosition) {
-        int numThreads = Runtime.getRuntime().availableProcessors();
-        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        return run(steps, initialPosition, SimulationListener.NONE);
+    }
+
+    @Override
+    public Optional<Integer> run(int[] steps, int initialPosition, SimulationListener listener) {
+        return run(MemorySegment.ofArray(steps), steps.length, initialPosition, listener)
+                .flatMap(VectorizedSimulationStrategy::intCount);
+    }
+
+    /**
+     * Counts both rules from {@code result.position()} in a single counting
+     * pass and adds them to {@code result}, whatever this strategy's
+     * {@link SimulationType}.
+     */
+    @Override
+    public boolean run(int[] steps, SimulationResult result) {
+        return run(steps, result, SimulationListener.NONE);
+    }
+
+    /**
+     * Counts both rules like {@link #run(int[], SimulationResult)} and reports
+     * the timings to {@code listener}.
+     */
+    public boolean run(int[] steps, SimulationResult result, SimulationListener listener) {
+        return run(MemorySegment.ofArray(steps), steps.length, result, listener);
+    }
+
+    /**
+     * Runs the simulation over 16-bit steps.
+     *
+     * @param steps           The array of steps.
+     * @param initialPosition The initial position of the dial.
+     * @return A Result containing the count of zero crossings.
+     */
+    public Optional<Integer> run(short[] steps, int initialPosition) {
+        return run(steps, initialPosition, SimulationListener.NONE);
+    }
+
+    /**
+     * Runs the simulation over 16-bit steps and reports its timings to
+     * {@code listener}.
+     *
+     * @param steps           The array of steps.
+     * @param initialPosition The initial position of the dial.
+     * @param listener        Receives the metrics of the run.
+     * @return A Result containing the count of zero crossings.
+     */
+    public Optional<Integer> run(short[] steps, int initialPosition, SimulationListener listener) {
+        long started = (listener == SimulationListener.NONE) ? 0 : System.nanoTime();
+        int totalSize = steps.length;
+        int numChunks = leafCount(totalSize);
+
+        if (numChunks <= 1) {
+            long count = narrowKernel.apply(steps, 0, totalSize, initialPosition);
+            report(listener, started, totalSize, NARROW_SPECIES_NAME, true);
+            return intCount(count);
+        }
 
         try {
-            int totalSize = steps.length;
-            int chunkSize = (int) Math.ceil((double) totalSize / numThreads);
-            List<Chunk> chunks = new ArrayList<>();
+            long count = scan.scan(steps, numChunks, initialPosition, narrowKernel, listener);
+            report(listener, started, totalSize, NARROW_SPECIES_NAME, false);
+            return intCount(count);
+        } catch (RuntimeException e) {
+            logger.error("Simulation failed", e);
+            return Optional.empty();
+        }
+    }
 
-            for (int i = 0; i < totalSize; i += chunkSize) {
-                int end = Math.min(i + chunkSize, totalSize);
-                chunks.add(new Chunk(steps, i, end));
-            }
+    /**
+     * Counts both rules over 16-bit steps from {@code result.position()} in a
+     * single counting pass and adds them to {@code result}.
+     *
+     * @param steps  The array of steps.
+     * @param result The result to continue from and add to.
+     * @return {@code true} if the run completed; on failure {@code result} is
+     *         left unchanged.
+     */
+    public boolean run(short[] steps, SimulationResult result) {
+        return run(steps, result, SimulationListener.NONE);
+    }
 
-            // Phase 1: Calculate net displacement per chunk
-            List<Future<Integer>> phase1Futures = new ArrayList<>();
-            for (Chunk chunk : chunks) {
-                phase1Futures.add(executor.submit(new NetDisplacementTask(chunk)));
+    /**
+     * Counts both rules like {@link #run(short[], SimulationResult)} and
+     * reports the timings to {@code listener}.
+     */
+    public boolean run(short[] steps, SimulationResult result, SimulationListener listener) {
+        long started = (listener == SimulationListener.NONE) ? 0 : System.nanoTime();
+        int totalSize = steps.length;
+        int numChunks = leafCount(totalSize);
+
+        try {
+            if (numChunks <= 1) {
+                DialKernels.countBoth(steps, 0, totalSize, modulus, result);
+            } else {
+                scan.scan(steps, numChunks, result, narrowFusedKernel, listener);
             }
+            report(listener, started, totalSize, NARROW_SPECIES_NAME, numChunks <= 1);
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Simulation failed", e);
+            return false;
+        }
+    }
 
-            int[] startPositions = new int[chunks.size()];
-            startPositions[0] = initialPosition;
+    /**
+     * Parses and simulates the remaining bytes of a step file. The buffer's
+     * position is not modified.
+     *
+     * @param input           The raw "L49"/"R27" step lines.
+     * @param initialPosition The initial position of the dial.
+     * @return A Result containing the count of zero crossings.
+     */
+    public Optional<Integer> run(ByteBuffer input, int initialPosition) {
+        return run(input, initialPosition, SimulationListener.NONE);
+    }
 
-            // Wait for Phase 1 and calculate start positions
-            for (int i = 0; i < chunks.size() - 1; i++) {
-                int netChange = phase1Futures.get(i).get();
-                startPositions[i + 1] = (startPositions[i] + netChange) % 100;
+    /**
+     * Parses and simulates the remaining bytes of a step file and reports the
+     * timings to {@code listener}. The buffer's position is not modified.
+     *
+     * @param input           The raw "L49"/"R27" step lines.
+     * @param initialPosition The initial position of the dial.
+     * @param listener        Receives the metrics of the run.
+     * @return A Result containing the count of zero crossings.
+     */
+    public Optional<Integer> run(ByteBuffer input, int initialPosition, SimulationListener listener) {
+        boolean timed = listener != SimulationListener.NONE;
+        long started = timed ? System.nanoTime() : 0;
+        int numChunks = parseChunkCount(input.remaining());
+
+        if (numChunks <= 1) {
+            ParsedSegment segment = ParsedSegment.parse(input.duplicate(), modulus);
+            if (!timed) {
+                return intCount(count(segment, initialPosition));
             }
+            long parsed = System.nanoTime();
+            listener.onChunk(SimulationListener.Phase.PARSE, 0, input.remaining(), parsed - started);
+            listener.onPhase(SimulationListener.Phase.PARSE, parsed - started);
+            long count = count(segment, initialPosition);
+            long counted = System.nanoTime();
+            listener.onChunk(SimulationListener.Phase.COUNT, 0, segment.count, counted - parsed);
+            listener.onPhase(SimulationListener.Phase.COUNT, counted - parsed);
+            listener.onRun(segment.count, segment.speciesName(), counted - started);
+            return intCount(count);
+        }
 
-            // Phase 2: Count zeroes
-            List<Future<Integer>> phase2Futures = new ArrayList<>();
-            for (int i = 0; i < chunks.size(); i++) {
-                ZeroCountTask task;
-                if (type == SimulationType.PART1_LAND_ON_ZERO) {
-                    task = new Part1ZeroCountTask(chunks.get(i), startPositions[i]);
-                } else {
-                    task = new Part2ZeroCountTask(chunks.get(i), startPositions[i]);
+        try {
+            int[] bounds = StepTokenizer.splitLines(input, numChunks);
+            List<CompletableFuture<Long>> counts = new ArrayList<>(numChunks);
+            List<CompletableFuture<ParsedSegment>> segments = timed ? new ArrayList<>(numChunks) : null;
+            // When each segment finished parsing, to time its wait for a start position
+            long[] parsedAt = timed ? new long[numChunks] : null;
+            CompletableFuture<Integer> startPosition = CompletableFuture
+                    .completedFuture(modulus.floorMod(initialPosition));
+
+            for (int c = 0; c < numChunks; c++) {
+                int chunk = c;
+                ByteBuffer slice = input.slice(bounds[c], bounds[c + 1] - bounds[c]);
+                CompletableFuture<ParsedSegment> parsed = CompletableFuture
+                        .supplyAsync(() -> parse(slice, chunk, parsedAt, listener), pool);
+
+                // Count this segment once it is parsed and its start position is known
+                counts.add(parsed.thenCombineAsync(startPosition,
+                        (segment, start) -> count(segment, start, chunk, parsedAt, listener), pool));
+
+                // The next segment starts where this one ends
+                startPosition = startPosition.thenCombine(parsed,
+                        (start, segment) -> modulus.floorMod(start + segment.netDisplacement));
+                if (timed) {
+                    segments.add(parsed);
                 }
-                phase2Futures.add(executor.submit(task));
             }
 
-            int totalZeroes = 0;
-            for (Future<Integer> future : phase2Futures) {
-                totalZeroes += future.get();
+            long totalZeroes = 0;
+            for (CompletableFuture<Long> count : counts) {
+                totalZeroes += count.join();
             }
-
-            return Optional.of(totalZeroes);
-
-        } catch (InterruptedException | ExecutionException e) {
+            if (timed) {
+                reportPipeline(listener, started, segments, parsedAt);
+            }
+            return intCount(totalZeroes);
+        } catch (RuntimeException e) {
             logger.error("Simulation failed", e);
             return Optional.empty();
-        } finally {
-            executor.shutdown();
         }
     }
 
-    static class Chunk {
-        final int[] data;
-        final int start;
-        final int end;
+    /**
+     * Parses the remaining bytes of a step file once and counts both rules from
+     * {@code result.position()}, adding them to {@code result}. Parsing and
+     * counting overlap as in {@link #run(ByteBuffer, int)}. The buffer's
+     * position is not modified.
+     *
+     * @param input  The raw "L49"/"R27" step lines.
+     * @param result The result to continue from and add to.
+     * @return {@code true} if the run completed; on failure {@code result} is
+     *         left unchanged.
+     */
+    public boolean run(ByteBuffer input, SimulationResult result) {
+        int numChunks = parseChunkCount(input.remaining());
 
-        Chunk(int[] data, int start, int end) {
-            this.data = data;
-            this.start = start;
-            this.end = end;
-        }
-    }
+        try {
+            if (numChunks <= 1) {
+                countBoth(ParsedSegment.parse(input.duplicate(), modulus), result);
+                return true;
+            }
 
-    static class NetDisplacementTask implements Callable<Integer> {
-        private final Chunk chunk;
+            int[] bounds = StepTokenizer.splitLines(input, numChunks);
+            List<CompletableFuture<SimulationResult>> parts = new ArrayList<>(numChunks);
+            CompletableFuture<Integer> startPosition = CompletableFuture
+                    .completedFuture(modulus.floorMod(result.position()));
 
-        public NetDisplacementTask(Chunk chunk) {
-            this.chunk = chunk;
-        }
+            for (int c = 0; c < numChunks; c++) {
+                ByteBuffer slice = input.slice(bounds[c], bounds[c + 1] - bounds[c]);
+                CompletableFuture<ParsedSegment> parsed = CompletableFuture
+                        .supplyAsync(() -> ParsedSegment.parse(slice, modulus), pool);
 
-        @Override
-        public Integer call() {
-            int i = chunk.start;
-            int sum = 0;
-            // Vectorized loop
-            for (; i < chunk.end - SPECIES.length(); i += SPECIES.length()) {
-                IntVector v = IntVector.fromArray(SPECIES, chunk.data, i);
-                sum += v.reduceLanes(VectorOperators.ADD);
+                parts.add(parsed.thenCombineAsync(startPosition, (segment, start) -> {
+                    SimulationResult part = new SimulationResult(start);
+                    countBoth(segment, part);
+                    return part;
+                }, pool));
+
+                startPosition = startPosition.thenCombine(parsed,
+                        (start, segment) -> modulus.floorMod(start + segment.netDisplacement));
             }
-            // Tail loop
-            for (; i < chunk.end; i++) {
-                sum += chunk.data[i];
+
+            // Join every part before touching the result, so a failure leaves it unchanged
+            SimulationResult total = new SimulationResult(result.position());
+            for (CompletableFuture<SimulationResult> part : parts) {
+                SimulationResult counted = part.join();
+                total.add(counted.landings(), counted.crossings(), counted.stepCount(), counted.position());
             }
-            return sum % 100;
+            result.add(total.landings(), total.crossings(), total.stepCount(), total.position());
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Simulation failed", e);
+            return false;
         }
     }
 
-    abstract static class ZeroCountTask implements Callable<Integer> {
-        protected final Chunk chunk;
-        protected final int startPosition;
+    /**
+     * Simulates steps held off-heap. The count is a {@code long}, since inputs
+     * of this size may pass zero more than {@code Integer.MAX_VALUE} times.
+     *
+     * @param steps           The parsed steps.
+     * @param initialPosition The initial position of the dial.
+     * @return A Result containing the count of zero crossings.
+     */
+    public Optional<Long> run(OffHeapSteps steps, int initialPosition) {
+        return run(steps, initialPosition, SimulationListener.NONE);
+    }
 
-        public ZeroCountTask(Chunk chunk, int startPosition) {
-            this.chunk = chunk;
-            this.startPosition = startPosition;
-        }
+    /**
+     * Simulates steps held off-heap and reports the timings to
+     * {@code listener}.
+     *
+     * @param steps           The parsed steps.
+     * @param initialPosition The initial position of the dial.
+     * @param listener        Receives the metrics of the run.
+     * @return A Result containing the count of zero crossings.
+     */
+    public Optional<Long> run(OffHeapSteps steps, int initialPosition, SimulationListener listener) {
+        return run(steps.segment(), steps.count(), initialPosition, listener);
+    }
 
-        @Override
-        public Integer call() {
-            // 1. Compute prefix sums sequentially
-            int len = chunk.end - chunk.start;
-            int[] prefixSums = new int[len];
-            int currentSum = 0;
-            for (int i = 0; i < len; i++) {
-                currentSum += chunk.data[chunk.start + i];
-                prefixSums[i] = currentSum;
-            }
-            return doCount(prefixSums, len);
+    /**
+     * Counts both rules over off-heap steps from {@code result.position()} in a
+     * single counting pass and adds them to {@code result}.
+     *
+     * @param steps  The parsed steps.
+     * @param result The result to continue from and add to.
+     * @return {@code true} if the run completed; on failure {@code result} is
+     *         left unchanged.
+     */
+    public boolean run(OffHeapSteps steps, SimulationResult result) {
+        return run(steps, result, SimulationListener.NONE);
+    }
+
+    /**
+     * Counts both rules like {@link #run(OffHeapSteps, SimulationResult)} and
+     * reports the timings to {@code listener}.
+     */
+    public boolean run(OffHeapSteps steps, SimulationResult result, SimulationListener listener) {
+        return run(steps.segment(), steps.count(), result, listener);
+    }
+
+    /**
+     * Parses a step file held in a memory segment into off-heap storage from
+     * {@code arena}, then simulates it.
+     *
+     * @param input           The raw "L49"/"R27" step lines.
+     * @param arena           A shared arena that owns the parsed steps.
+     * @param initialPosition The initial position of the dial.
+     * @return A Result containing the count of zero crossings.
+     */
+    public Optional<Long> run(MemorySegment input, Arena arena, int initialPosition) {
+        OffHeapSteps steps;
+        try {
+            steps = OffHeapSteps.parse(input, arena, pool);
+        } catch (RuntimeException e) {
+            logger.error("Parsing failed", e);
+            return Optional.empty();
         }
+        return run(steps, initialPosition);
+    }
 
-        protected abstract int doCount(int[] prefixSums, int len);
+    /**
+     * Simulates a step file through its compiled {@link StepCache}: a valid
+     * cache is mapped and counted without parsing, otherwise the file is
+     * parsed on this strategy's pool and the cache is rewritten.
+     *
+     * @param stepFile        The "L49"/"R27" step file.
+     * @param arena           A shared arena that owns the mapped or parsed steps.
+     * @param initialPosition The initial position of the dial.
+     * @return A Result containing the count of zero crossings.
+     */
+    public Optional<Long> run(Path stepFile, Arena arena, int initialPosition) {
+        return run(stepFile, arena, initialPosition, SimulationListener.NONE);
     }
 
-    static class Part1ZeroCountTask extends ZeroCountTask {
-        public Part1ZeroCountTask(Chunk chunk, int startPosition) {
-            super(chunk, startPosition);
+    /**
+     * Simulates a step file through its compiled {@link StepCache} and reports
+     * the timings to {@code listener}. Loading the cache, or parsing the file
+     * when it is stale, is reported as {@link SimulationListener.Phase#READ}.
+     *
+     * @param stepFile        The "L49"/"R27" step file.
+     * @param arena           A shared arena that owns the mapped or parsed steps.
+     * @param initialPosition The initial position of the dial.
+     * @param listener        Receives the metrics of the run.
+     * @return A Result containing the count of zero crossings.
+     */
+    public Optional<Long> run(Path stepFile, Arena arena, int initialPosition, SimulationListener listener) {
+        long started = (listener == SimulationListener.NONE) ? 0 : System.nanoTime();
+        OffHeapSteps steps;
+        try {
+            steps = StepCache.load(stepFile, arena, pool);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error loading steps", e);
+            return Optional.empty();
+        }
+        if (listener != SimulationListener.NONE) {
+            listener.onPhase(SimulationListener.Phase.READ, System.nanoTime() - started);
         }
+        return run(steps, initialPosition, listener);
+    }
 
-        @Override
-        protected int doCount(int[] prefixSums, int len) {
-            int count = 0;
-            int i = 0;
+    /**
+     * Counts both rules over a step file through its compiled
+     * {@link StepCache}, from {@code result.position()}, and adds them to
+     * {@code result}. The file is parsed at most once, and not at all when the
+     * cache is valid.
+     *
+     * @param stepFile The "L49"/"R27" step file.
+     * @param arena    A shared arena that owns the mapped or parsed steps.
+     * @param result   The result to continue from and add to.
+     * @return {@code true} if the run completed; on failure {@code result} is
+     *         left unchanged.
+     */
+    public boolean run(Path stepFile, Arena arena, SimulationResult result) {
+        return run(stepFile, arena, result, SimulationListener.NONE);
+    }
 
-            // Vectorized Part 1: Check if (startPosition + prefixSum) % 100 == 0
-            for (; i < len - SPECIES.length(); i += SPECIES.length()) {
-                IntVector vPrefix = IntVector.fromArray(SPECIES, prefixSums, i);
-                IntVector vCurr = vPrefix.add(startPosition);
+    /**
+     * Counts both rules like {@link #run(Path, Arena, SimulationResult)} and
+     * reports the timings to {@code listener}. Loading the cache, or parsing
+     * the file when it is stale, is reported as
+     * {@link SimulationListener.Phase#READ}.
+     */
+    public boolean run(Path stepFile, Arena arena, SimulationResult result, SimulationListener listener) {
+        long started = (listener == SimulationListener.NONE) ? 0 : System.nanoTime();
+        OffHeapSteps steps;
+        try {
+            steps = StepCache.load(stepFile, arena, pool);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error loading steps", e);
+            return false;
+        }
+        if (listener != SimulationListener.NONE) {
+            listener.onPhase(SimulationListener.Phase.READ, System.nanoTime() - started);
+        }
+        return run(steps, result, listener);
+    }
 
-                // v % 100 = v - (v / 100) * 100
-                IntVector vDiv = vCurr.div(100);
-                IntVector vRem = vCurr.sub(vDiv.mul(100));
+    /**
+     * Simulates the first {@code count} {@code int} steps of {@code steps},
+     * a heap array or off-heap storage, on the scan.
+     */
+    private Optional<Long> run(MemorySegment steps, long count, int initialPosition, SimulationListener listener) {
+        long started = (listener == SimulationListener.NONE) ? 0 : System.nanoTime();
+        int numChunks = leafCount(count);
+
+        if (numChunks <= 1) {
+            // Too little work to amortize a hand-off to the pool
+            long total = kernel.apply(steps, 0, count, initialPosition);
+            report(listener, started, count, SPECIES_NAME, true);
+            return Optional.of(total);
+        }
 
-                VectorMask<Integer> mask = vRem.eq(0);
-                count += mask.trueCount();
-            }
+        try {
+            long total = scan.scan(steps, count, numChunks, initialPosition, kernel, listener);
+            report(listener, started, count, SPECIES_NAME, false);
+            return Optional.of(total);
+        } catch (RuntimeException e) {
+            logger.error("Simulation failed", e);
+            return Optional.empty();
+        }
+    }
 
-            // Tail loop for Part 1
-            for (; i < len; i++) {
-                if ((startPosition + prefixSums[i]) % 100 == 0) {
-                    count++;
-                }
+    /**
+     * Counts both rules over the first {@code count} {@code int} steps of
+     * {@code steps}, a heap array or off-heap storage, and adds them to
+     * {@code result}.
+     */
+    private boolean run(MemorySegment steps, long count, SimulationResult result, SimulationListener listener) {
+        long started = (listener == SimulationListener.NONE) ? 0 : System.nanoTime();
+        int numChunks = leafCount(count);
+
+        try {
+            if (numChunks <= 1) {
+                DialKernels.countBoth(steps, 0, count, modulus, result);
+            } else {
+                scan.scan(steps, count, numChunks, result, fusedKernel, listener);
             }
-            return count;
+            report(listener, started, count, SPECIES_NAME, numChunks <= 1);
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Simulation failed", e);
+            return false;
         }
     }
 
-    static class Part2ZeroCountTask extends ZeroCountTask {
-        public Part2ZeroCountTask(Chunk chunk, int startPosition) {
-            super(chunk, startPosition);
+    /**
+     * Narrows a count for the runs that return an {@code Integer}. The kernels
+     * count in {@code long}; a count beyond {@code Integer.MAX_VALUE} fails
+     * the run instead of wrapping, and the {@link SimulationResult} runs must
+     * be used for it.
+     *
+     * @return The count, or empty if it does not fit in an {@code int}.
+     */
+    static Optional<Integer> intCount(long count) {
+        try {
+            return Optional.of(Math.toIntExact(count));
+        } catch (ArithmeticException e) {
+            logger.error("Count {} overflows an int; run with a SimulationResult instead", count);
+            return Optional.empty();
         }
+    }
 
-        @Override
-        protected int doCount(int[] prefixSums, int len) {
-            int count = 0;
-            int i = 0;
-
-            // Vectorized Part 2: Check for zero crossings
-            for (; i < len - SPECIES.length(); i += SPECIES.length()) {
-                // Load prefix sums and steps
-                IntVector vPrefix = IntVector.fromArray(SPECIES, prefixSums, i);
-                IntVector vStep = IntVector.fromArray(SPECIES, chunk.data, chunk.start + i);
+    /**
+     * Shuts down the pool if it is owned by this strategy. Injected pools are
+     * left running.
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
 
-                // Calculate current and previous absolute positions
-                IntVector vCurr = vPrefix.add(startPosition);
-                IntVector vPrev = vCurr.sub(vStep);
+    /**
+     * @return The number of scan leaves for {@code steps} steps: one per worker
+     *         while that keeps leaves below {@code LEAF_SIZE}, more beyond it,
+     *         or at most 1 if the run is too small to leave the calling thread.
+     */
+    private int leafCount(long steps) {
+        long perWorker = Math.min(pool.getParallelism(), steps / MIN_CHUNK_SIZE);
+        if (perWorker <= 1) {
+            return (int) perWorker;
+        }
+        long leaves = (steps + LEAF_SIZE - 1) / LEAF_SIZE;
+        return (int) Math.min(Math.max(perWorker, leaves), (long) pool.getParallelism() * MAX_LEAVES_PER_WORKER);
+    }
 
-                // Calculate floorDiv(vCurr, 100) and floorDiv(vPrev, 100)
-                // floorDiv(a, 100) = (a >= 0) ? a/100 : (a - 99)/100
-                IntVector vFloorCurr = floorDiv100(vCurr);
-                IntVector vFloorPrev = floorDiv100(vPrev);
+    /**
+     * @return The number of line-aligned chunks to parse {@code bytes} input
+     *         bytes in, sized like {@link #leafCount(long)}.
+     */
+    private int parseChunkCount(int bytes) {
+        int perWorker = Math.min(pool.getParallelism(), bytes / MIN_PARSE_CHUNK_BYTES);
+        if (perWorker <= 1) {
+            return perWorker;
+        }
+        int chunks = (int) (((long) bytes + PARSE_CHUNK_BYTES - 1) / PARSE_CHUNK_BYTES);
+        return Math.min(Math.max(perWorker, chunks), pool.getParallelism() * MAX_LEAVES_PER_WORKER);
+    }
 
-                // Calculate floorDiv(vCurr - 1, 100) and floorDiv(vPrev - 1, 100) for negative
-                // steps
-                IntVector vFloorCurrMinus1 = floorDiv100(vCurr.sub(1));
-                IntVector vFloorPrevMinus1 = floorDiv100(vPrev.sub(1));
+    private long count(ParsedSegment segment, int startPosition) {
+        return (segment.narrowSteps != null)
+                ? narrowKernel.apply(segment.narrowSteps, 0, segment.count, startPosition)
+                : kernel.apply(MemorySegment.ofArray(segment.steps), 0, segment.count, startPosition);
+    }
 
-                // Hits if step > 0: floor(curr/100) - floor(prev/100)
-                IntVector hitsPos = vFloorCurr.sub(vFloorPrev);
+    private void countBoth(ParsedSegment segment, SimulationResult result) {
+        if (segment.narrowSteps != null) {
+            DialKernels.countBoth(segment.narrowSteps, 0, segment.count, modulus, result);
+        } else {
+            DialKernels.countBoth(MemorySegment.ofArray(segment.steps), 0, segment.count, modulus, result);
+        }
+    }
 
-                // Hits if step < 0: floor((prev-1)/100) - floor((curr-1)/100)
-                IntVector hitsNeg = vFloorPrevMinus1.sub(vFloorCurrMinus1);
+    private ParsedSegment parse(ByteBuffer range, int chunk, long[] parsedAt, SimulationListener listener) {
+        if (listener == SimulationListener.NONE) {
+            return ParsedSegment.parse(range, modulus);
+        }
+        long started = System.nanoTime();
+        ParsedSegment segment = ParsedSegment.parse(range, modulus);
+        parsedAt[chunk] = System.nanoTime();
+        listener.onChunk(SimulationListener.Phase.PARSE, chunk, range.remaining(), parsedAt[chunk] - started);
+        return segment;
+    }
 
-                // Select based on step direction
-                VectorMask<Integer> maskNeg = vStep.compare(VectorOperators.LT, 0);
-                IntVector vHits = hitsPos.blend(hitsNeg, maskNeg);
+    private long count(ParsedSegment segment, int startPosition, int chunk, long[] parsedAt,
+            SimulationListener listener) {
+        if (listener == SimulationListener.NONE) {
+            return count(segment, startPosition);
+        }
+        long started = System.nanoTime();
+        long count = count(segment, startPosition);
+        listener.onChunk(SimulationListener.Phase.START_POSITIONS, chunk, segment.count, started - parsedAt[chunk]);
+        listener.onChunk(SimulationListener.Phase.COUNT, chunk, segment.count, System.nanoTime() - started);
+        return count;
+    }
 
-                count += vHits.reduceLanes(VectorOperators.ADD);
-            }
+    /**
+     * Reports a finished scan run. A run on the calling thread is a single
+     * {@link SimulationListener.Phase#COUNT} chunk.
+     */
+    private static void report(SimulationListener listener, long started, long elementCount, String species,
+            boolean singleChunk) {
+        if (listener == SimulationListener.NONE) {
+            return;
+        }
+        long elapsed = System.nanoTime() - started;
+        if (singleChunk) {
+            listener.onChunk(SimulationListener.Phase.COUNT, 0, elementCount, elapsed);
+            listener.onPhase(SimulationListener.Phase.COUNT, elapsed);
+        }
+        listener.onRun(elementCount, species, elapsed);
+    }
 
-            // Tail loop for Part 2
-            for (; i < len; i++) {
-                int step = chunk.data[chunk.start + i];
-                int curr = startPosition + prefixSums[i];
-                int prev = curr - step;
+    /**
+     * Reports a finished parsing pipeline: the time until the last segment was
+     * parsed, and the run as a whole.
+     */
+    private static void reportPipeline(SimulationListener listener, long started,
+            List<CompletableFuture<ParsedSegment>> segments, long[] parsedAt) {
+        long elapsed = System.nanoTime() - started;
+        long lastParsed = started;
+        long elementCount = 0;
+        boolean narrow = false;
+        boolean wide = false;
+        for (int c = 0; c < segments.size(); c++) {
+            ParsedSegment segment = segments.get(c).join();
+            lastParsed = Math.max(lastParsed, parsedAt[c]);
+            elementCount += segment.count;
+            narrow |= segment.narrowSteps != null;
+            wide |= segment.steps != null;
+        }
+        listener.onPhase(SimulationListener.Phase.PARSE, lastParsed - started);
+        String species = (narrow && wide) ? NARROW_SPECIES_NAME + ", " + SPECIES_NAME
+                : narrow ? NARROW_SPECIES_NAME : SPECIES_NAME;
+        listener.onRun(elementCount, species, elapsed);
+    }
 
-                if (step > 0) {
-                    count += floorDiv(curr, 100) - floorDiv(prev, 100);
-                } else if (step < 0) {
-                    count += floorDiv(prev - 1, 100) - floorDiv(curr - 1, 100);
-                }
-            }
-            return count;
+    /**
+     * The steps tokenized from one line-aligned range of the input, in 16-bit
+     * slots when every magnitude fits and in {@code int} slots otherwise.
+     */
+    private static final class ParsedSegment {
+        final int[] steps;
+        final short[] narrowSteps;
+        final int count;
+        final int netDisplacement;
+
+        private ParsedSegment(int[] steps, short[] narrowSteps, int count, int netDisplacement) {
+            this.steps = steps;
+            this.narrowSteps = narrowSteps;
+            this.count = count;
+            this.netDisplacement = netDisplacement;
         }
 
-        private IntVector floorDiv100(IntVector v) {
-            VectorMask<Integer> maskNeg = v.compare(VectorOperators.LT, 0);
-            return v.blend(v.sub(99), maskNeg).div(100);
+        String speciesName() {
+            return (narrowSteps != null) ? NARROW_SPECIES_NAME : SPECIES_NAME;
         }
 
-        private int floorDiv(int a, int b) {
-            // We know b = 100 > 0
-            return (a >= 0) ? (a / b) : ((a - b + 1) / b);
+        static ParsedSegment parse(ByteBuffer range, DialModulus modulus) {
+            int capacity = (range.remaining() + 1) / 2;
+            short[] narrowSteps = new short[capacity];
+            int count = StepTokenizer.tokenize(range.duplicate(), narrowSteps);
+            if (count >= 0) {
+                return new ParsedSegment(null, narrowSteps, count,
+                        ParallelPrefixScan.netDisplacement(narrowSteps, 0, count, modulus));
+            }
+
+            // A step too wide for 16 bits; parse the range again into ints
+            int[] steps = new int[capacity];
+            count = StepTokenizer.tokenize(range, steps);
+            return new ParsedSegment(steps, null, count, ParallelPrefixScan.netDisplacement(steps, 0, count, modulus));
         }
     }
 }
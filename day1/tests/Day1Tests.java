@@ -208,4 +208,1500 @@ public class Day1Tests {
                 "Legacy and Extra Credit solutions should match");
     }
 
+    @Test
+    public void testStreamingSimulatorConsistency() {
+        String filePath = "day1/day1.txt";
+        for (VectorizedSimulationStrategy.SimulationType type : VectorizedSimulationStrategy.SimulationType
+                .values()) {
+            Optional<Integer> fullResult = new day1.simulation.DialSimulator.Builder()
+                    .filePath(filePath)
+                    .initialPosition(50)
+                    .strategy(new VectorizedSimulationStrategy(type))
+                    .build()
+                    .run();
+            // A small, odd block size forces many block boundaries mid-file
+            Optional<Integer> streamingResult = new day1.simulation.DialSimulator.Builder()
+                    .filePath(filePath)
+                    .initialPosition(50)
+                    .strategy(new VectorizedSimulationStrategy(type))
+                    .streaming(true)
+                    .blockSize(37)
+                    .build()
+                    .run();
+
+            assertTrue(fullResult.isPresent());
+            assertTrue(streamingResult.isPresent());
+            assertEquals(fullResult.get(), streamingResult.get(), "Streaming should match full run for " + type);
+        }
+    }
+
+    @Test
+    public void testStreamingSimulatorCrlf() throws IOException {
+        // L50, R100 with Windows line endings and a trailing newline
+        // Start: 50
+        // 1. 50 - 50 = 0 (Count 1)
+        // 2. 0 + 100 = 100 (0) (Count 2)
+        java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("day1streaming_test", ".txt");
+        java.nio.file.Files.write(tempFile, "L50\r\nR100\r\n".getBytes());
+
+        try {
+            Optional<Integer> result = new day1.simulation.DialSimulator.Builder()
+                    .filePath(tempFile.toString())
+                    .initialPosition(50)
+                    .strategy(new VectorizedSimulationStrategy())
+                    .streaming(true)
+                    .blockSize(1)
+                    .build()
+                    .run();
+            assertTrue(result.isPresent());
+            assertEquals(2, result.get());
+        } finally {
+            java.nio.file.Files.delete(tempFile);
+        }
+    }
+
+    @Test
+    public void testVectorizedStrategySharedPool() {
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        int[] steps = randomSteps(100_000, 42);
+        try {
+            for (VectorizedSimulationStrategy.SimulationType type : VectorizedSimulationStrategy.SimulationType
+                    .values()) {
+                long expected = referenceCount(steps, 50, type);
+                // Several runs reuse the same pool; closing must not shut down an injected pool
+                try (VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(type, pool)) {
+                    for (int run = 0; run < 3; run++) {
+                        Optional<Integer> result = strategy.run(steps, 50);
+                        assertTrue(result.isPresent());
+                        assertEquals(expected, result.get().longValue(), "Shared pool run for " + type);
+                    }
+                }
+                assertFalse(pool.isShutdown(), "Injected pool should outlive the strategy");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testVectorizedStrategyEmptyInput() {
+        try (VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy()) {
+            Optional<Integer> result = strategy.run(new int[0], 50);
+            assertTrue(result.isPresent());
+            assertEquals(0, result.get());
+        }
+    }
+
+    /**
+     * Generates reproducible steps in the day1 range (magnitudes below 1000).
+     */
+    private static int[] randomSteps(int count, long seed) {
+        java.util.Random random = new java.util.Random(seed);
+        int[] steps = new int[count];
+        for (int i = 0; i < count; i++) {
+            int magnitude = random.nextInt(1000);
+            steps[i] = random.nextBoolean() ? magnitude : -magnitude;
+        }
+        return steps;
+    }
+
+    /**
+     * Scalar reference implementation of both counting rules.
+     */
+    private static long referenceCount(int[] steps, int initialPosition,
+            VectorizedSimulationStrategy.SimulationType type) {
+        return referenceCount(steps, initialPosition, type, 100);
+    }
+
+    private static long referenceCount(int[] steps, int initialPosition,
+            VectorizedSimulationStrategy.SimulationType type, int modulus) {
+        int position = Math.floorMod(initialPosition, modulus);
+        long count = 0;
+        for (int step : steps) {
+            if (type == VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO) {
+                position = Math.floorMod(position + step, modulus);
+                if (position == 0) {
+                    count++;
+                }
+            } else {
+                int direction = step > 0 ? 1 : -1;
+                for (int k = 0; k < Math.abs(step); k++) {
+                    position = Math.floorMod(position + direction, modulus);
+                    if (position == 0) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testInclusivePrefix() {
+        jdk.incubator.vector.VectorSpecies<Integer> species = jdk.incubator.vector.IntVector.SPECIES_PREFERRED;
+        int[] lanes = new int[species.length()];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = (i % 2 == 0) ? i + 1 : -(i + 1);
+        }
+        int[] prefix = day1.simulation.ParallelPrefixScan
+                .inclusivePrefix(jdk.incubator.vector.IntVector.fromArray(species, lanes, 0))
+                .toArray();
+
+        int sum = 0;
+        for (int i = 0; i < lanes.length; i++) {
+            sum += lanes[i];
+            assertEquals(sum, prefix[i], "Prefix lane " + i);
+        }
+    }
+
+    @Test
+    public void testParallelPrefixScanLeafStarts() {
+        // Every leaf must see the position reached by all steps before it,
+        // whatever the number of leaves
+        int[] steps = randomSteps(10_000, 7);
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        try {
+            day1.simulation.ParallelPrefixScan scan = new day1.simulation.ParallelPrefixScan(pool);
+            for (int leaves : new int[] { 1, 2, 3, 7, 64 }) {
+                long mismatches = scan.scan(java.lang.foreign.MemorySegment.ofArray(steps), steps.length, leaves, 50,
+                        (data, from, to, start) -> {
+                    int expected = 50;
+                    for (long i = 0; i < from; i++) {
+                        expected += data.getAtIndex(java.lang.foreign.ValueLayout.JAVA_INT, i);
+                    }
+                    return Math.floorMod(expected, 100) == Math.floorMod(start, 100) ? 0 : 1;
+                });
+                assertEquals(0, mismatches, "Leaf start positions with " + leaves + " leaves");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testStepTokenizerMatchesLineParsing() {
+        int[] expected = randomSteps(20_000, 11);
+        for (String lineEnding : new String[] { "\n", "\r\n" }) {
+            StringBuilder text = new StringBuilder();
+            for (int step : expected) {
+                text.append(step < 0 ? 'L' : 'R').append(Math.abs(step)).append(lineEnding);
+            }
+            byte[] bytes = text.toString().getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+
+            int[] parsed = new int[(bytes.length + 1) / 2];
+            int count = day1.simulation.StepTokenizer.tokenize(bytes, 0, bytes.length, parsed, 0);
+            assertArrayEquals(expected, java.util.Arrays.copyOf(parsed, count), "Array tokenizer");
+
+            // Direct buffers go through the block-copy path
+            java.nio.ByteBuffer direct = java.nio.ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes).flip();
+            int[] fromBuffer = new int[(bytes.length + 1) / 2];
+            int bufferCount = day1.simulation.StepTokenizer.tokenize(direct, fromBuffer);
+            assertArrayEquals(expected, java.util.Arrays.copyOf(fromBuffer, bufferCount), "Buffer tokenizer");
+        }
+    }
+
+    @Test
+    public void testStepTokenizerNoTrailingNewline() {
+        // The final step is terminated by the end of input, not a newline
+        byte[] bytes = "L68\nL30\nR48\nL5\nR1000".getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+        int[] parsed = new int[(bytes.length + 1) / 2];
+        int count = day1.simulation.StepTokenizer.tokenize(bytes, 0, bytes.length, parsed, 0);
+        assertArrayEquals(new int[] { -68, -30, 48, -5, 1000 }, java.util.Arrays.copyOf(parsed, count));
+    }
+
+    @Test
+    public void testParallelParsingMatchesArrayRun() throws IOException {
+        // ~2 MB of steps, above the Optimized solvers' parallel threshold
+        int[] steps = randomSteps(400_000, 23);
+        byte[] bytes = toStepText(steps);
+        java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("day1parallelparse_test", ".txt");
+        java.nio.file.Files.write(tempFile, bytes);
+
+        // Inject a multi-worker pool so the input is split even on single-core machines
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        try {
+            for (VectorizedSimulationStrategy.SimulationType type : VectorizedSimulationStrategy.SimulationType
+                    .values()) {
+                try (VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(type, pool)) {
+                    Optional<Integer> fromArray = strategy.run(steps, 50);
+                    Optional<Integer> fromBytes = strategy.run(java.nio.ByteBuffer.wrap(bytes), 50);
+                    assertTrue(fromArray.isPresent());
+                    assertTrue(fromBytes.isPresent());
+                    assertEquals(fromArray.get(), fromBytes.get(), "Parallel parsing for " + type);
+
+                    long optimized = (type == VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO)
+                            ? day1.Day1Part1Optimized.solve(tempFile.toString())
+                            : day1.Day1Part2Optimized.solve(tempFile.toString());
+                    assertEquals(fromArray.get().longValue(), optimized, "Optimized solver for " + type);
+                }
+            }
+        } finally {
+            pool.shutdown();
+            java.nio.file.Files.delete(tempFile);
+            java.nio.file.Files.deleteIfExists(day1.simulation.StepCache.cachePath(tempFile));
+        }
+    }
+
+    private static byte[] toStepText(int[] steps) {
+        StringBuilder text = new StringBuilder();
+        for (int step : steps) {
+            text.append(step < 0 ? 'L' : 'R').append(Math.abs(step)).append('\n');
+        }
+        return text.toString().getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void testDialTransitionOfStepsMatchesMerge() {
+        int[] steps = randomSteps(1_000, 5);
+        day1.simulation.DialTransition merged = day1.simulation.DialTransition.IDENTITY;
+        for (int step : steps) {
+            merged = day1.simulation.DialTransition.merge(merged, day1.simulation.DialTransition.of(step));
+        }
+        day1.simulation.DialTransition bulk = day1.simulation.DialTransition.ofSteps(steps, 0, steps.length);
+
+        assertEquals(merged.delta(), bulk.delta());
+        for (int start = 0; start < 100; start++) {
+            assertEquals(merged.hits(start), bulk.hits(start), "Hits from start " + start);
+            assertEquals(referenceCount(steps, start, VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO),
+                    bulk.hits(start), "Reference hits from start " + start);
+        }
+    }
+
+    @Test
+    public void testDialTransitionIndexEdits() {
+        // Apply random edits to both the index and a plain list, checking the
+        // zero count after every edit
+        java.util.Random random = new java.util.Random(99);
+        java.util.List<Integer> expected = new java.util.ArrayList<>();
+        int[] initial = randomSteps(500, 13);
+        for (int step : initial) {
+            expected.add(step);
+        }
+        day1.simulation.DialTransitionIndex index = new day1.simulation.DialTransitionIndex(initial);
+
+        for (int edit = 0; edit < 2_000; edit++) {
+            int step = random.nextInt(2000) - 1000;
+            int op = random.nextInt(3);
+            if (op == 0 && !expected.isEmpty()) {
+                int i = random.nextInt(expected.size());
+                expected.set(i, step);
+                index.set(i, step);
+            } else if (op == 1 || expected.isEmpty()) {
+                int i = random.nextInt(expected.size() + 1);
+                expected.add(i, step);
+                index.insert(i, step);
+            } else {
+                int i = random.nextInt(expected.size());
+                assertEquals((int) expected.remove(i), index.remove(i));
+            }
+
+            int[] current = expected.stream().mapToInt(Integer::intValue).toArray();
+            assertEquals(current.length, index.size());
+            assertEquals(referenceCount(current, 50, VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO),
+                    index.landings(50), "Landings after edit " + edit);
+        }
+
+        int[] current = expected.stream().mapToInt(Integer::intValue).toArray();
+        for (int i = 0; i < current.length; i++) {
+            assertEquals(current[i], index.get(i));
+        }
+
+        // Draining every block and refilling must leave a usable index
+        while (index.size() > 0) {
+            index.remove(0);
+        }
+        assertEquals(0, index.landings(50));
+        index.insert(0, -50);
+        index.insert(1, 100);
+        assertEquals(2, index.landings(50));
+
+        // Repeated inserts at the front overflow and split the first block
+        for (int i = 0; i < 300; i++) {
+            index.insert(0, 100);
+        }
+        assertEquals(302, index.size());
+        assertEquals(2, index.landings(50));
+        assertEquals(300, index.landings(0));
+    }
+
+    @Test
+    public void testIncrementalDialCounter() {
+        int[] steps = randomSteps(20_000, 31);
+        day1.simulation.IncrementalDialCounter counter = new day1.simulation.IncrementalDialCounter(50);
+
+        // Feed the steps in uneven batches, including empty ones
+        java.util.Random random = new java.util.Random(3);
+        int from = 0;
+        while (from < steps.length) {
+            int to = Math.min(steps.length, from + random.nextInt(300));
+            counter.append(steps, from, to);
+            from = to;
+        }
+
+        assertEquals(steps.length, counter.stepCount());
+        assertEquals(referenceCount(steps, 50, VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO),
+                counter.landings());
+        assertEquals(referenceCount(steps, 50, VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO),
+                counter.crossings());
+
+        int expectedPosition = 50;
+        for (int step : steps) {
+            expectedPosition = Math.floorMod(expectedPosition + step, 100);
+        }
+        assertEquals(expectedPosition, counter.position());
+    }
+
+    @Test
+    public void testStartPositionSweep() {
+        int[] steps = randomSteps(2_000, 17);
+        day1.simulation.StartPositionSweep sweep = new day1.simulation.StartPositionSweep();
+        // Two calls must behave like one, since the sweep carries its offset
+        sweep.accept(steps, 0, 777);
+        sweep.accept(steps, 777, steps.length);
+
+        long[] landings = sweep.landings();
+        long[] crossings = sweep.crossings();
+        for (int start = 0; start < 100; start++) {
+            assertEquals(referenceCount(steps, start, VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO),
+                    landings[start], "Landings from start " + start);
+            assertEquals(referenceCount(steps, start, VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO),
+                    crossings[start], "Crossings from start " + start);
+        }
+    }
+
+    @Test
+    public void testSweepStartPositionsConsistency() throws IOException {
+        String filePath = "day1/day1.txt";
+        try (VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy()) {
+            Optional<day1.simulation.StartPositionSweep> sweep = new day1.simulation.DialSimulator.Builder()
+                    .filePath(filePath)
+                    .strategy(strategy)
+                    .streaming(true)
+                    .blockSize(1000)
+                    .build()
+                    .sweepStartPositions();
+
+            assertTrue(sweep.isPresent());
+            assertEquals(day1.Day1Part1.solve(filePath), sweep.get().landings()[50]);
+            assertEquals(day1.Day1Part2.solve(filePath), sweep.get().crossings()[50]);
+        }
+    }
+
+    @Test
+    public void testCrossingTransitionMerge() {
+        int[] steps = randomSteps(1_000, 19);
+        day1.simulation.CrossingTransition merged = day1.simulation.CrossingTransition.IDENTITY;
+        for (int step : steps) {
+            merged = day1.simulation.CrossingTransition.merge(merged, day1.simulation.CrossingTransition.of(step));
+        }
+
+        for (int start = 0; start < 100; start++) {
+            assertEquals(referenceCount(steps, start, VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO),
+                    merged.crossings(start), "Crossings from start " + start);
+        }
+    }
+
+    @Test
+    public void testTransitionReductionStrategy() {
+        // Enough steps for several leaves
+        int[] steps = randomSteps(300_000, 29);
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        try {
+            for (VectorizedSimulationStrategy.SimulationType type : VectorizedSimulationStrategy.SimulationType
+                    .values()) {
+                Optional<Integer> expected;
+                try (VectorizedSimulationStrategy vectorized = new VectorizedSimulationStrategy(type, pool)) {
+                    expected = vectorized.run(steps, 50);
+                }
+                Optional<Integer> result = new day1.simulation.TransitionReductionStrategy(type, pool).run(steps, 50);
+                assertTrue(result.isPresent());
+                assertEquals(expected.get(), result.get(), "Transition reduction for " + type);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testDialModulusMatchesFloorDivision() {
+        java.util.Random random = new java.util.Random(37);
+        jdk.incubator.vector.VectorSpecies<Integer> species = jdk.incubator.vector.IntVector.SPECIES_PREFERRED;
+        int[] moduli = { 1, 3, 7, 100, 360, 1000, 65_537, 1 << 30 };
+        int[] lanes = new int[species.length()];
+
+        for (int m : moduli) {
+            day1.simulation.DialModulus modulus = new day1.simulation.DialModulus(m);
+            for (int trial = 0; trial < 2_000; trial++) {
+                // Cover the documented range [-2^29, 2^29), including both ends
+                for (int i = 0; i < lanes.length; i++) {
+                    lanes[i] = random.nextInt(1 << 30) - (1 << 29);
+                }
+                lanes[0] = -(1 << 29);
+                lanes[lanes.length - 1] = (1 << 29) - 1;
+
+                jdk.incubator.vector.IntVector v = jdk.incubator.vector.IntVector.fromArray(species, lanes, 0);
+                int[] quotients = modulus.floorDiv(v).toArray();
+                int[] remainders = modulus.floorMod(v).toArray();
+                for (int i = 0; i < lanes.length; i++) {
+                    assertEquals(Math.floorDiv(lanes[i], m), modulus.floorDiv(lanes[i]));
+                    assertEquals(Math.floorDiv(lanes[i], m), quotients[i]);
+                    assertEquals(Math.floorMod(lanes[i], m), remainders[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDialModulusIsExactOutsideVectorRange() {
+        // The scalar methods fall back to Math beyond the multiply-high range
+        int[] moduli = { 1, 3, 100, 360, 65_537, 1 << 30 };
+        int[] edges = { Integer.MIN_VALUE, -600_000_000, -(1 << 29) - 1, -(1 << 29), (1 << 29) - 1, 1 << 29,
+                700_000_000, Integer.MAX_VALUE };
+
+        for (int m : moduli) {
+            day1.simulation.DialModulus modulus = new day1.simulation.DialModulus(m);
+            for (int x : edges) {
+                assertEquals(Math.floorDiv(x, m), modulus.floorDiv(x), x + " div " + m);
+                assertEquals(Math.floorMod(x, m), modulus.floorMod(x), x + " mod " + m);
+                long wide = 3L * x;
+                assertEquals(Math.floorDiv(wide, (long) m), modulus.floorDiv(wide), wide + " div " + m);
+                assertEquals(Math.floorMod(wide, (long) m), (long) modulus.floorMod(wide), wide + " mod " + m);
+            }
+        }
+    }
+
+    @Test
+    public void testLargeStepsMatchReferenceOnEveryPath() throws IOException {
+        // Prefix sums of these steps leave the range DialModulus reduces in lanes
+        int[] reported = { 600_000_050, -1_000_000_000, 700_000_000, 5, -55 };
+        int[] repeated = new int[64];
+        java.util.Arrays.fill(repeated, -40_000_000);
+        int[] mixed = largeSteps(100_000, 97);
+        assertArrayEquals(new long[] { 3, 23_000_002 }, closedFormCounts(reported, 50, 100));
+        assertArrayEquals(new long[] { 0, 25_600_000 }, closedFormCounts(repeated, 50, 100));
+
+        java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("day1large_test", ".txt");
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        try (java.lang.foreign.Arena arena = java.lang.foreign.Arena.ofShared()) {
+            for (int modulus : new int[] { 100, 1_000_003 }) {
+                for (int[] steps : new int[][] { reported, repeated, mixed }) {
+                    long[] expected = closedFormCounts(steps, 50, modulus);
+                    String name = steps.length + " steps mod " + modulus;
+                    byte[] text = toStepText(steps);
+                    java.nio.file.Files.write(tempFile, text);
+                    java.lang.foreign.MemorySegment input = arena.allocate(text.length);
+                    java.lang.foreign.MemorySegment.copy(text, 0, input, java.lang.foreign.ValueLayout.JAVA_BYTE, 0,
+                            text.length);
+                    day1.simulation.OffHeapSteps offHeap = day1.simulation.OffHeapSteps.parse(input, arena, pool);
+
+                    int displacement = 50;
+                    for (int step : steps) {
+                        displacement = Math.floorMod(displacement + (long) step, modulus);
+                    }
+                    assertEquals(Math.floorMod(displacement - 50, modulus), day1.simulation.ParallelPrefixScan
+                            .netDisplacement(steps, 0, steps.length, new day1.simulation.DialModulus(modulus)), name);
+
+                    for (VectorizedSimulationStrategy.SimulationType type : VectorizedSimulationStrategy.SimulationType
+                            .values()) {
+                        long count = expected[type.ordinal()];
+                        String label = name + " for " + type;
+                        VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(type, modulus, pool);
+                        // Counts beyond an int fail the int runs instead of wrapping
+                        Optional<Long> fits = Optional.of(count).filter(c -> c <= Integer.MAX_VALUE);
+                        assertEquals(fits, strategy.run(steps, 50).map(Integer::longValue), "Array run, " + label);
+                        assertEquals(fits, new day1.simulation.DialSimulator.Builder()
+                                .filePath(tempFile.toString())
+                                .initialPosition(50)
+                                .strategy(strategy)
+                                .modulus(modulus)
+                                .streaming(true)
+                                .blockSize(1_000)
+                                .build()
+                                .run().map(Integer::longValue), "Streaming run, " + label);
+                        assertEquals(count, strategy.run(offHeap, 50).get().longValue(), "Off-heap run, " + label);
+                    }
+
+                    VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(
+                            VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO, modulus, pool);
+                    day1.simulation.SimulationResult result = new day1.simulation.SimulationResult(50);
+                    assertTrue(strategy.run(steps, result));
+                    assertCounts(expected, displacement, result, "Fused array run, " + name);
+                    result = new day1.simulation.SimulationResult(50);
+                    assertTrue(strategy.run(offHeap, result));
+                    assertCounts(expected, displacement, result, "Fused off-heap run, " + name);
+                    result = new day1.simulation.SimulationResult(50);
+                    assertTrue(strategy.run(java.nio.ByteBuffer.wrap(text), result));
+                    assertCounts(expected, displacement, result, "Fused parsed run, " + name);
+                    result = new day1.simulation.SimulationResult(0);
+                    assertTrue(new day1.simulation.DialSimulator.Builder()
+                            .filePath(tempFile.toString())
+                            .initialPosition(50)
+                            .strategy(strategy)
+                            .modulus(modulus)
+                            .streaming(true)
+                            .blockSize(1_000)
+                            .build()
+                            .run(result));
+                    assertCounts(expected, displacement, result, "Fused streaming run, " + name);
+                }
+            }
+
+            // 16-bit steps widen into lanes that only fit while the modulus leaves room for them
+            java.util.Random random = new java.util.Random(103);
+            short[] narrow = new short[20_000];
+            int[] widened = new int[narrow.length];
+            for (int i = 0; i < narrow.length; i++) {
+                narrow[i] = (short) (random.nextBoolean() ? Short.MIN_VALUE + random.nextInt(8) : Short.MAX_VALUE);
+                widened[i] = narrow[i];
+            }
+            for (int modulus : new int[] { 100, (1 << 29) - 5, 1 << 30 }) {
+                long[] expected = closedFormCounts(widened, 50, modulus);
+                VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(
+                        VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO, modulus, pool);
+                assertEquals(expected[1], strategy.run(narrow, 50).get().longValue(), "Narrow run mod " + modulus);
+                day1.simulation.SimulationResult result = new day1.simulation.SimulationResult(50);
+                assertTrue(strategy.run(narrow, result));
+                assertEquals(expected[0], result.landings(), "Narrow landings mod " + modulus);
+                assertEquals(expected[1], result.crossings(), "Narrow crossings mod " + modulus);
+            }
+        } finally {
+            pool.shutdown();
+            java.nio.file.Files.delete(tempFile);
+        }
+    }
+
+    @Test
+    public void testIntCountsFailInsteadOfWrapping() throws IOException {
+        // 3,000 full-scale steps pass zero 3 * 10^10 times, beyond an int
+        int[] steps = new int[3_000];
+        java.util.Arrays.fill(steps, 1_000_000_000);
+        long crossings = closedFormCounts(steps, 50, 100)[1];
+        assertTrue(crossings > Integer.MAX_VALUE);
+
+        java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("day1overflow_test", ".txt");
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        try (VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(
+                VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO, pool)) {
+            java.nio.file.Files.write(tempFile, toStepText(steps));
+            assertTrue(strategy.run(steps, 50).isEmpty(), "Array run");
+            assertTrue(strategy.run(java.nio.ByteBuffer.wrap(toStepText(steps)), 50).isEmpty(), "Parsed run");
+            assertTrue(new day1.simulation.AdaptiveSimulationStrategy(
+                    VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO, pool).run(steps, 50).isEmpty(),
+                    "Adaptive run");
+
+            // Each block fits, but their total does not
+            day1.simulation.DialSimulator.Builder streaming = new day1.simulation.DialSimulator.Builder()
+                    .filePath(tempFile.toString())
+                    .initialPosition(50)
+                    .strategy(strategy)
+                    .streaming(true)
+                    .blockSize(100);
+            assertTrue(streaming.build().run().isEmpty(), "Streaming run");
+
+            // The long API still has the exact count
+            day1.simulation.SimulationResult result = new day1.simulation.SimulationResult(0);
+            assertTrue(streaming.build().run(result));
+            assertEquals(crossings, result.crossings());
+        } finally {
+            pool.shutdown();
+            java.nio.file.Files.delete(tempFile);
+        }
+    }
+
+    /**
+     * Steps of every magnitude: mostly small, with one in eight anywhere up
+     * to {@code Integer.MAX_VALUE}, so some vectors are summed in lanes and
+     * some are not.
+     */
+    private static int[] largeSteps(int count, long seed) {
+        java.util.Random random = new java.util.Random(seed);
+        int[] steps = new int[count];
+        for (int i = 0; i < count; i++) {
+            int magnitude = (random.nextInt(8) == 0) ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(1000);
+            steps[i] = random.nextBoolean() ? magnitude : -magnitude;
+        }
+        steps[count / 2] = Integer.MAX_VALUE;
+        steps[count / 2 + 1] = -Integer.MAX_VALUE;
+        return steps;
+    }
+
+    /**
+     * Closed-form reference for steps of any magnitude.
+     *
+     * @return The landings and the crossings.
+     */
+    private static long[] closedFormCounts(int[] steps, int initialPosition, int modulus) {
+        long position = Math.floorMod(initialPosition, modulus);
+        long landings = 0;
+        long crossings = 0;
+        for (int step : steps) {
+            long next = position + step;
+            if (step > 0) {
+                crossings += Math.floorDiv(next, modulus) - Math.floorDiv(position, modulus);
+            } else if (step < 0) {
+                crossings += Math.floorDiv(position - 1, modulus) - Math.floorDiv(next - 1, modulus);
+            }
+            position = Math.floorMod(next, modulus);
+            if (position == 0) {
+                landings++;
+            }
+        }
+        return new long[] { landings, crossings };
+    }
+
+    private static void assertCounts(long[] expected, int position, day1.simulation.SimulationResult result,
+            String message) {
+        assertEquals(expected[0], result.landings(), message);
+        assertEquals(expected[1], result.crossings(), message);
+        assertEquals(position, result.position(), message);
+    }
+
+    @Test
+    public void testVectorizedStrategyWithCustomModulus() {
+        int[] steps = randomSteps(50_000, 41);
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        try {
+            for (int modulus : new int[] { 7, 100, 360, 1024 }) {
+                for (VectorizedSimulationStrategy.SimulationType type : VectorizedSimulationStrategy.SimulationType
+                        .values()) {
+                    VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(type, modulus, pool);
+                    // Start positions outside [0, modulus) are reduced first
+                    for (int start : new int[] { 0, 3, modulus - 1, -5 }) {
+                        assertEquals((int) referenceCount(steps, start, type, modulus),
+                                strategy.run(steps, start).get());
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testDialSimulatorModulusValidation() throws IOException {
+        java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("dial_modulus", ".txt");
+        try (VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(
+                VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO, 360)) {
+            int[] steps = randomSteps(5_000, 43);
+            java.nio.file.Files.write(tempFile, toStepText(steps));
+
+            // The strategy was built for a 360 position dial
+            assertThrows(IllegalStateException.class, () -> new day1.simulation.DialSimulator.Builder()
+                    .filePath(tempFile.toString())
+                    .strategy(strategy)
+                    .build());
+
+            day1.simulation.DialSimulator streaming = new day1.simulation.DialSimulator.Builder()
+                    .filePath(tempFile.toString())
+                    .initialPosition(180)
+                    .modulus(360)
+                    .strategy(strategy)
+                    .streaming(true)
+                    .blockSize(1_000)
+                    .build();
+            assertEquals((int) referenceCount(steps, 180,
+                    VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO, 360), streaming.run().get());
+
+            // Strategies that do not declare a modulus count on 100 positions
+            assertThrows(IllegalStateException.class, () -> new day1.simulation.DialSimulator.Builder()
+                    .filePath(tempFile.toString())
+                    .modulus(37)
+                    .strategy(new day1.simulation.TransitionReductionStrategy(
+                            VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO))
+                    .build());
+            assertThrows(IllegalStateException.class, () -> new day1.simulation.DialBatchSimulator.Builder()
+                    .filePaths(java.util.List.of(tempFile))
+                    .modulus(37)
+                    .strategy(new day1.simulation.TransitionReductionStrategy(
+                            VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO))
+                    .computePool(java.util.concurrent.ForkJoinPool.commonPool())
+                    .build());
+
+            // The default fused run counts on the modulus the strategy declares
+            day1.simulation.SimulationStrategy declared = new day1.simulation.SimulationStrategy() {
+                @Override
+                public java.util.Optional<Integer> run(int[] steps, int initialPosition) {
+                    return java.util.Optional.empty();
+                }
+
+                @Override
+                public int modulus() {
+                    return 37;
+                }
+            };
+            day1.simulation.SimulationResult result = new day1.simulation.SimulationResult(5);
+            assertTrue(declared.run(steps, result));
+            assertEquals(referenceCount(steps, 5, VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO, 37),
+                    result.landings());
+            assertEquals(referenceCount(steps, 5, VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO, 37),
+                    result.crossings());
+            assertEquals(Math.floorMod(5 + java.util.Arrays.stream(steps).sum(), 37), result.position());
+        } finally {
+            java.nio.file.Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Test
+    public void testBatchSimulatorMatchesSingleFileRuns() throws IOException, InterruptedException {
+        java.nio.file.Path directory = java.nio.file.Files.createTempDirectory("dial_batch");
+        java.nio.file.Path extraFile = java.nio.file.Files.createTempFile("dial_batch_extra", ".txt");
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        java.util.Map<java.nio.file.Path, Integer> expected = new java.util.HashMap<>();
+        try (VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(
+                VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO, pool)) {
+            // Files of very different sizes, so they finish out of order
+            int[] sizes = { 200_000, 10, 5_000, 0 };
+            for (int f = 0; f < sizes.length; f++) {
+                int[] steps = randomSteps(sizes[f], 50 + f);
+                java.nio.file.Path file = directory.resolve("log" + f + ".txt");
+                java.nio.file.Files.write(file, toStepText(steps));
+                expected.put(file, (int) referenceCount(steps, 50,
+                        VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO));
+            }
+            int[] extraSteps = randomSteps(1_000, 60);
+            java.nio.file.Files.write(extraFile, toStepText(extraSteps));
+            expected.put(extraFile, (int) referenceCount(extraSteps, 50,
+                    VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO));
+            java.nio.file.Path missing = directory.resolveSibling("dial_batch_missing.txt");
+
+            java.util.List<day1.simulation.DialBatchSimulator.FileResult> results =
+                    new day1.simulation.DialBatchSimulator.Builder()
+                            .directory(directory)
+                            .filePaths(java.util.List.of(extraFile, missing))
+                            .initialPosition(50)
+                            .strategy(strategy)
+                            .computePool(pool)
+                            .maxOpenFiles(2)
+                            .build()
+                            .runAll();
+
+            assertEquals(expected.size() + 1, results.size());
+            for (day1.simulation.DialBatchSimulator.FileResult result : results) {
+                if (result.path().equals(missing)) {
+                    // A failed file is reported without failing the batch
+                    assertTrue(result.count().isEmpty());
+                } else {
+                    assertEquals(expected.get(result.path()), result.count().get());
+                }
+            }
+        } finally {
+            pool.shutdown();
+            for (java.nio.file.Path file : expected.keySet()) {
+                java.nio.file.Files.deleteIfExists(file);
+            }
+            java.nio.file.Files.deleteIfExists(directory);
+        }
+    }
+
+    @Test
+    public void testOffHeapStepsMatchArrayRun() {
+        int[] steps = randomSteps(200_000, 47);
+        // CRLF line endings and no trailing newline on the last step
+        String text = new String(toStepText(steps), java.nio.charset.StandardCharsets.US_ASCII)
+                .replace("\n", "\r\n").stripTrailing();
+        byte[] bytes = text.getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        try (java.lang.foreign.Arena arena = java.lang.foreign.Arena.ofShared()) {
+            java.lang.foreign.MemorySegment input = arena.allocate(bytes.length);
+            java.lang.foreign.MemorySegment.copy(bytes, 0, input, java.lang.foreign.ValueLayout.JAVA_BYTE, 0,
+                    bytes.length);
+
+            assertEquals((long) steps.length, day1.simulation.StepTokenizer.countSteps(input, 0, input.byteSize()));
+            day1.simulation.OffHeapSteps parsed = day1.simulation.OffHeapSteps.parse(input, arena, pool);
+            assertEquals((long) steps.length, parsed.count());
+            for (int i = 0; i < steps.length; i += 997) {
+                assertEquals(steps[i], parsed.get(i));
+            }
+            assertEquals(steps[steps.length - 1], parsed.get(steps.length - 1));
+            assertThrows(IndexOutOfBoundsException.class, () -> parsed.get(steps.length));
+
+            for (VectorizedSimulationStrategy.SimulationType type : VectorizedSimulationStrategy.SimulationType
+                    .values()) {
+                try (VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(type, pool)) {
+                    long expected = referenceCount(steps, 50, type);
+                    assertEquals(expected, strategy.run(parsed, 50).get().longValue(), "Off-heap run for " + type);
+                    assertEquals(expected, strategy.run(input, arena, 50).get().longValue(),
+                            "Off-heap parse for " + type);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testStepCacheReuseAndInvalidation() throws IOException {
+        java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("day1stepcache_test", ".txt");
+        java.nio.file.Path cache = day1.simulation.StepCache.cachePath(tempFile);
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        try {
+            int[] steps = randomSteps(100_000, 53);
+            java.nio.file.Files.write(tempFile, toStepText(steps));
+            assertFalse(day1.simulation.StepCache.isFresh(tempFile));
+
+            // First load parses and compiles; the second maps the cache
+            for (int run = 0; run < 2; run++) {
+                try (java.lang.foreign.Arena arena = java.lang.foreign.Arena.ofShared()) {
+                    day1.simulation.OffHeapSteps loaded = day1.simulation.StepCache.load(tempFile, arena, pool);
+                    assertEquals((long) steps.length, loaded.count());
+                    assertEquals(steps[0], loaded.get(0));
+                    assertEquals(steps[steps.length - 1], loaded.get(steps.length - 1));
+                }
+                assertTrue(day1.simulation.StepCache.isFresh(tempFile));
+            }
+
+            // A corrupted body fails the checksum and is rebuilt
+            try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(cache,
+                    java.nio.file.StandardOpenOption.WRITE)) {
+                channel.write(java.nio.ByteBuffer.wrap(new byte[] { 0x7F }), channel.size() - 1);
+            }
+            assertFalse(day1.simulation.StepCache.isFresh(tempFile));
+
+            // A changed source (new size and modification time) is parsed again
+            int[] changed = randomSteps(1_000, 59);
+            java.nio.file.Files.write(tempFile, toStepText(changed));
+            java.nio.file.Files.setLastModifiedTime(tempFile,
+                    java.nio.file.attribute.FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+            assertFalse(day1.simulation.StepCache.isFresh(tempFile));
+
+            for (VectorizedSimulationStrategy.SimulationType type : VectorizedSimulationStrategy.SimulationType
+                    .values()) {
+                try (VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(type, pool)) {
+                    day1.simulation.DialSimulator simulator = new day1.simulation.DialSimulator.Builder()
+                            .filePath(tempFile.toString())
+                            .initialPosition(50)
+                            .strategy(strategy)
+                            .stepCache(true)
+                            .build();
+                    assertEquals((int) referenceCount(changed, 50, type), simulator.run().get());
+                    assertTrue(day1.simulation.StepCache.isFresh(tempFile));
+                    // Served from the cache this time
+                    assertEquals((int) referenceCount(changed, 50, type), simulator.run().get());
+                }
+            }
+        } finally {
+            pool.shutdown();
+            java.nio.file.Files.deleteIfExists(tempFile);
+            java.nio.file.Files.deleteIfExists(cache);
+        }
+    }
+
+    @Test
+    public void testNarrowStepsMatchWideRun() {
+        // Mostly small steps, plus rare magnitudes near the 16-bit limit that
+        // force the widened prefix sum
+        java.util.Random random = new java.util.Random(61);
+        int[] steps = new int[60_000];
+        short[] narrow = new short[steps.length];
+        for (int i = 0; i < steps.length; i++) {
+            int magnitude = (random.nextInt(50) == 0) ? Short.MAX_VALUE - random.nextInt(100) : random.nextInt(1000);
+            steps[i] = random.nextBoolean() ? magnitude : -magnitude;
+            narrow[i] = (short) steps[i];
+        }
+
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        try {
+            for (int modulus : new int[] { 100, 7, 40_000 }) {
+                for (VectorizedSimulationStrategy.SimulationType type : VectorizedSimulationStrategy.SimulationType
+                        .values()) {
+                    VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(type, modulus, pool);
+                    assertEquals((int) referenceCount(steps, 33, type, modulus), strategy.run(narrow, 33).get(),
+                            type + " mod " + modulus);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testNarrowTokenizerFallsBackForWideSteps() {
+        byte[] fits = "L32767\nR5\nL0\n".getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+        short[] narrow = new short[(fits.length + 1) / 2];
+        int count = day1.simulation.StepTokenizer.tokenize(fits, 0, fits.length, narrow, 0);
+        assertArrayEquals(new short[] { -32767, 5, 0 }, java.util.Arrays.copyOf(narrow, count));
+
+        byte[] wide = "R5\nL32768\nR1\n".getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+        assertEquals(-1, day1.simulation.StepTokenizer.tokenize(java.nio.ByteBuffer.wrap(wide),
+                new short[(wide.length + 1) / 2]));
+
+        // The Part 1 solver and the strategy fall back to int steps
+        // 50 -> 55 -> -32713 (87) -> 88: no landings; then R12 lands on zero
+        byte[] input = "R5\nL32768\nR1\nR12\n".getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+        assertEquals(1L, day1.Day1Part1Optimized.solve(java.nio.ByteBuffer.wrap(input), input.length));
+        try (VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(
+                VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO)) {
+            assertEquals(1, strategy.run(java.nio.ByteBuffer.wrap(input), 50).get());
+        }
+    }
+
+    @Test
+    public void testSimulationListenerReportsPhases() throws IOException {
+        int[] steps = randomSteps(200_000, 67);
+        java.util.Map<String, java.util.concurrent.atomic.AtomicInteger> events =
+                new java.util.concurrent.ConcurrentHashMap<>();
+        java.util.List<String> runs = new java.util.concurrent.CopyOnWriteArrayList<>();
+        day1.simulation.SimulationListener listener = new day1.simulation.SimulationListener() {
+            @Override
+            public void onRun(long elementCount, String species, long nanos) {
+                runs.add(elementCount + " " + species);
+            }
+
+            @Override
+            public void onPhase(Phase phase, long nanos) {
+                assertTrue(nanos >= 0, phase.name());
+                events.computeIfAbsent(phase.name(), k -> new java.util.concurrent.atomic.AtomicInteger())
+                        .incrementAndGet();
+            }
+
+            @Override
+            public void onChunk(Phase phase, int chunk, long elementCount, long nanos) {
+                events.computeIfAbsent(phase + "#" + chunk, k -> new java.util.concurrent.atomic.AtomicInteger())
+                        .incrementAndGet();
+            }
+        };
+
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("day1_listener_test", ".txt");
+        try {
+            VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(
+                    VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO, pool);
+            int expected = (int) referenceCount(steps, 50,
+                    VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO);
+            assertEquals(expected, strategy.run(steps, 50, listener).get());
+
+            // One event per sweep, and every leaf reports its displacement, wait and count
+            assertEquals(1, events.get("DISPLACEMENT").get());
+            assertEquals(1, events.get("COUNT").get());
+            for (int leaf = 0; leaf < 4; leaf++) {
+                assertEquals(1, events.get("DISPLACEMENT#" + leaf).get());
+                assertEquals(1, events.get("START_POSITIONS#" + leaf).get());
+                assertEquals(1, events.get("COUNT#" + leaf).get());
+            }
+            assertEquals(java.util.List.of("200000 " + jdk.incubator.vector.IntVector.SPECIES_PREFERRED), runs);
+
+            // The fused run reports the same sweeps and leaves
+            events.clear();
+            runs.clear();
+            day1.simulation.SimulationResult result = new day1.simulation.SimulationResult(50);
+            assertTrue(strategy.run(steps, result, listener));
+            assertEquals(expected, result.crossings());
+            assertEquals(1, events.get("DISPLACEMENT").get());
+            assertEquals(1, events.get("COUNT").get());
+            for (int leaf = 0; leaf < 4; leaf++) {
+                assertEquals(1, events.get("START_POSITIONS#" + leaf).get());
+                assertEquals(1, events.get("COUNT#" + leaf).get());
+            }
+            assertEquals(java.util.List.of("200000 " + jdk.incubator.vector.IntVector.SPECIES_PREFERRED), runs);
+
+            // The simulator adds the read and parse phases of the file
+            events.clear();
+            runs.clear();
+            java.nio.file.Files.write(tempFile, toStepText(steps));
+            day1.simulation.DialSimulator simulator = new day1.simulation.DialSimulator.Builder()
+                    .filePath(tempFile.toString())
+                    .initialPosition(50)
+                    .strategy(strategy)
+                    .listener(listener)
+                    .build();
+            assertEquals(expected, simulator.run().get());
+            assertEquals(1, events.get("READ").get());
+            assertEquals(1, events.get("PARSE").get());
+            assertEquals(1, runs.size());
+
+            // Without a listener nothing is reported
+            events.clear();
+            assertEquals(expected, strategy.run(steps, 50).get());
+            assertTrue(events.isEmpty());
+        } finally {
+            pool.shutdown();
+            java.nio.file.Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Test
+    public void testSimulationResultChainsSegments() throws IOException {
+        int[] steps = randomSteps(90_000, 71);
+        long landings = referenceCount(steps, 50, VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO);
+        long crossings = referenceCount(steps, 50, VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO);
+        long displacement = 0;
+        for (int step : steps) {
+            displacement += step;
+        }
+        int end = (int) Math.floorMod(50 + displacement, 100L);
+
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("day1_result_test", ".txt");
+        try {
+            day1.simulation.SimulationStrategy[] strategies = {
+                    new VectorizedSimulationStrategy(VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO,
+                            pool),
+                    new day1.simulation.TransitionReductionStrategy(
+                            VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO, pool),
+                    (s, start) -> Optional.empty() // Uses the default result path
+            };
+            day1.simulation.SimulationResult result = new day1.simulation.SimulationResult(0);
+            for (day1.simulation.SimulationStrategy strategy : strategies) {
+                // Three uneven segments, each resuming where the previous one ended
+                result.reset(50);
+                int[] bounds = { 0, 17, 40_000, steps.length };
+                for (int i = 0; i < 3; i++) {
+                    assertTrue(strategy.run(java.util.Arrays.copyOfRange(steps, bounds[i], bounds[i + 1]), result));
+                }
+                assertEquals(landings, result.landings(), strategy.toString());
+                assertEquals(crossings, result.crossings(), strategy.toString());
+                assertEquals(end, result.position(), strategy.toString());
+                assertEquals(steps.length, result.stepCount());
+            }
+
+            // Streaming blocks chain through the result as well
+            java.nio.file.Files.write(tempFile, toStepText(steps));
+            day1.simulation.DialSimulator simulator = new day1.simulation.DialSimulator.Builder()
+                    .filePath(tempFile.toString())
+                    .initialPosition(50)
+                    .strategy(strategies[0])
+                    .streaming(true)
+                    .blockSize(7_000)
+                    .build();
+            assertTrue(simulator.run(result));
+            assertEquals(landings, result.landings());
+            assertEquals(crossings, result.crossings());
+            assertEquals(end, result.position());
+        } finally {
+            pool.shutdown();
+            java.nio.file.Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Test
+    public void testAdaptiveStrategyChoosesBySize() throws IOException {
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("day1_adaptive_test", ".txt");
+        try {
+            day1.simulation.AdaptiveSimulationStrategy.Thresholds thresholds =
+                    new day1.simulation.AdaptiveSimulationStrategy.Thresholds(100, 10_000, 100_000);
+            for (VectorizedSimulationStrategy.SimulationType type : VectorizedSimulationStrategy.SimulationType
+                    .values()) {
+                day1.simulation.AdaptiveSimulationStrategy strategy = new day1.simulation.AdaptiveSimulationStrategy(
+                        type, pool, thresholds);
+                assertEquals(day1.simulation.AdaptiveSimulationStrategy.Choice.SCALAR, strategy.choose(99));
+                assertEquals(day1.simulation.AdaptiveSimulationStrategy.Choice.VECTOR, strategy.choose(100));
+                assertEquals(day1.simulation.AdaptiveSimulationStrategy.Choice.PARALLEL_VECTOR,
+                        strategy.choose(10_000));
+                assertEquals(day1.simulation.AdaptiveSimulationStrategy.Choice.REDUCTION, strategy.choose(100_000));
+
+                // Every candidate gives the reference answer
+                for (int size : new int[] { 37, 5_000, 40_000, 120_000 }) {
+                    int[] steps = randomSteps(size, 73 + size);
+                    assertEquals((int) referenceCount(steps, 50, type), strategy.run(steps, 50).get(),
+                            type + " " + strategy.choose(size));
+                }
+            }
+
+            // Large runs go to the pool even when the SIMD kernels are disabled
+            day1.simulation.AdaptiveSimulationStrategy scalarOrPool = new day1.simulation.AdaptiveSimulationStrategy(
+                    VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO, pool,
+                    new day1.simulation.AdaptiveSimulationStrategy.Thresholds(Integer.MAX_VALUE, 1024,
+                            Integer.MAX_VALUE));
+            assertEquals(day1.simulation.AdaptiveSimulationStrategy.Choice.SCALAR, scalarOrPool.choose(1023));
+            assertEquals(day1.simulation.AdaptiveSimulationStrategy.Choice.PARALLEL_VECTOR, scalarOrPool.choose(1024));
+            assertEquals(day1.simulation.AdaptiveSimulationStrategy.Choice.PARALLEL_VECTOR,
+                    scalarOrPool.choose(100_000_000));
+            int[] large = randomSteps(50_000, 101);
+            assertEquals((int) referenceCount(large, 50, VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO),
+                    scalarOrPool.run(large, 50).get());
+
+            // A single-worker pool never hands runs to the pool
+            java.util.concurrent.ForkJoinPool single = new java.util.concurrent.ForkJoinPool(1);
+            try {
+                assertEquals(day1.simulation.AdaptiveSimulationStrategy.Choice.VECTOR,
+                        new day1.simulation.AdaptiveSimulationStrategy(
+                                VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO, single, thresholds)
+                                .choose(1_000_000));
+            } finally {
+                single.shutdown();
+            }
+
+            // Calibration always leaves the pool to large runs, and the simulator can pick the strategy itself
+            day1.simulation.AdaptiveSimulationStrategy calibrated = new day1.simulation.AdaptiveSimulationStrategy(
+                    VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO, pool);
+            assertTrue(calibrated.thresholds().parallelThreshold() < Integer.MAX_VALUE);
+            assertTrue(calibrated.thresholds().parallelThreshold() <= calibrated.thresholds().reductionThreshold());
+
+            int[] steps = randomSteps(30_000, 79);
+            java.nio.file.Files.write(tempFile, toStepText(steps));
+            day1.simulation.DialSimulator simulator = new day1.simulation.DialSimulator.Builder()
+                    .filePath(tempFile.toString())
+                    .initialPosition(50)
+                    .adaptive(VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO)
+                    .build();
+            assertEquals((int) referenceCount(steps, 50, VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO),
+                    simulator.run().get());
+        } finally {
+            pool.shutdown();
+            java.nio.file.Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Test
+    public void testStepProcessorPublishesRunningTotals() throws Exception {
+        int[] steps = randomSteps(50_000, 83);
+        int[] bounds = { 0, 10, 9_000, 9_001, 30_000, steps.length };
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        try {
+            day1.simulation.DialStepProcessor processor = new day1.simulation.DialStepProcessor(
+                    new VectorizedSimulationStrategy(VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO,
+                            pool),
+                    50, 2, pool, 1);
+
+            // Upstream records every request, so the demand bound can be checked
+            java.util.concurrent.atomic.AtomicLong requested = new java.util.concurrent.atomic.AtomicLong();
+            processor.onSubscribe(new java.util.concurrent.Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    requested.addAndGet(n);
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            assertEquals(2, requested.get());
+
+            java.util.List<day1.simulation.DialStepProcessor.Totals> totals =
+                    new java.util.concurrent.CopyOnWriteArrayList<>();
+            java.util.concurrent.CompletableFuture<Void> done = processor.consume(totals::add);
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                processor.onNext(java.util.Arrays.copyOfRange(steps, bounds[i], bounds[i + 1]));
+                // One new request per counted batch, never more than the bound outstanding
+                assertEquals(2 + i + 1, requested.get());
+            }
+            processor.onComplete();
+            done.get(10, java.util.concurrent.TimeUnit.SECONDS);
+
+            assertEquals(bounds.length - 1, totals.size());
+            for (int i = 0; i < totals.size(); i++) {
+                int[] prefix = java.util.Arrays.copyOf(steps, bounds[i + 1]);
+                assertEquals(prefix.length, totals.get(i).stepCount());
+                assertEquals(referenceCount(prefix, 50, VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO),
+                        totals.get(i).landings());
+                assertEquals(referenceCount(prefix, 50, VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO),
+                        totals.get(i).crossings());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testStepIndexParsesOnlyAppendedTail() throws IOException {
+        int[] steps = randomSteps(25_500, 89);
+        int[] appended = randomSteps(12_345, 97);
+        int[] all = java.util.Arrays.copyOf(steps, steps.length + appended.length);
+        System.arraycopy(appended, 0, all, steps.length, appended.length);
+
+        java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("day1_index_test", ".txt");
+        java.nio.file.Path index = day1.simulation.StepIndex.indexPath(tempFile);
+        try {
+            java.nio.file.Files.write(tempFile, toStepText(steps));
+            day1.simulation.DialSimulator simulator = new day1.simulation.DialSimulator.Builder()
+                    .filePath(tempFile.toString())
+                    .initialPosition(50)
+                    .strategy(new VectorizedSimulationStrategy())
+                    .stepIndex(true)
+                    .blockSize(1_000)
+                    .build();
+            assertThrows(IllegalStateException.class, simulator::run);
+
+            day1.simulation.SimulationResult result = new day1.simulation.SimulationResult(0);
+            assertTrue(simulator.run(result));
+            assertEquals(referenceCount(steps, 50, VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO),
+                    result.landings());
+            assertEquals(referenceCount(steps, 50, VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO),
+                    result.crossings());
+            assertTrue(java.nio.file.Files.exists(index));
+            assertEquals(25, day1.simulation.StepIndex.update(tempFile, 1_000).blockCount());
+
+            // Append, ending in a line that is still being written
+            byte[] tail = toStepText(appended);
+            java.nio.file.Files.write(tempFile, java.util.Arrays.copyOf(tail, tail.length - 1),
+                    java.nio.file.StandardOpenOption.APPEND);
+            assertTrue(simulator.run(result));
+            assertEquals(all.length, result.stepCount());
+            assertEquals(referenceCount(all, 50, VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO),
+                    result.landings());
+            assertEquals(referenceCount(all, 50, VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO),
+                    result.crossings());
+            assertEquals(37, day1.simulation.StepIndex.update(tempFile, 1_000).blockCount());
+
+            // A rewritten file no longer matches the index, which is rebuilt
+            int[] rewritten = randomSteps(20_000, 101);
+            java.nio.file.Files.write(tempFile, toStepText(rewritten));
+            assertTrue(simulator.run(result));
+            assertEquals(referenceCount(rewritten, 50, VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO),
+                    result.crossings());
+        } finally {
+            java.nio.file.Files.deleteIfExists(tempFile);
+            java.nio.file.Files.deleteIfExists(index);
+        }
+    }
+
+    @Test
+    public void testShardedRunnerMergesWorkerSummaries() throws IOException, InterruptedException {
+        int[] steps = randomSteps(30_000, 103);
+        java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("day1_sharded_test", ".txt");
+        try {
+            java.nio.file.Files.write(tempFile, toStepText(steps));
+            day1.simulation.SimulationResult result = new day1.simulation.SimulationResult(50);
+            day1.simulation.ShardedDialRunner runner = new day1.simulation.ShardedDialRunner.Builder()
+                    .filePath(tempFile.toString())
+                    .shards(3)
+                    .build();
+            assertTrue(runner.run(result));
+            assertEquals(steps.length, result.stepCount());
+            assertEquals(referenceCount(steps, 50, VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO),
+                    result.landings());
+            assertEquals(referenceCount(steps, 50, VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO),
+                    result.crossings());
+
+            // A worker that cannot start its main class fails the run and leaves the result alone
+            day1.simulation.ShardedDialRunner broken = new day1.simulation.ShardedDialRunner.Builder()
+                    .filePath(tempFile.toString())
+                    .shards(1)
+                    .classPath(tempFile.getParent().resolve("missing").toString())
+                    .build();
+            assertFalse(broken.run(result));
+            assertEquals(steps.length, result.stepCount());
+
+            // A worker that hangs is destroyed at the timeout, and a malformed
+            // summary fails the run instead of escaping as an exception
+            java.nio.file.Path hung = java.nio.file.Files.createTempFile("day1_hung_worker", ".sh");
+            java.nio.file.Path garbled = java.nio.file.Files.createTempFile("day1_garbled_worker", ".sh");
+            try {
+                java.nio.file.Files.writeString(hung, "#!/bin/sh\nsleep 60\n");
+                java.nio.file.Files.writeString(garbled, "#!/bin/sh\necho SHARD 1 2 three\n");
+                hung.toFile().setExecutable(true);
+                garbled.toFile().setExecutable(true);
+
+                long started = System.nanoTime();
+                assertFalse(new day1.simulation.ShardedDialRunner.Builder()
+                        .filePath(tempFile.toString())
+                        .shards(1)
+                        .javaCommand(hung.toString())
+                        .timeoutSeconds(1)
+                        .build()
+                        .run(result));
+                assertTrue(System.nanoTime() - started < 30_000_000_000L, "Hung worker was not destroyed");
+
+                assertFalse(new day1.simulation.ShardedDialRunner.Builder()
+                        .filePath(tempFile.toString())
+                        .shards(1)
+                        .javaCommand(garbled.toString())
+                        .build()
+                        .run(result));
+                assertEquals(steps.length, result.stepCount());
+            } finally {
+                java.nio.file.Files.deleteIfExists(hung);
+                java.nio.file.Files.deleteIfExists(garbled);
+            }
+        } finally {
+            java.nio.file.Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Test
+    public void testFusedRunCountsBothRules() throws IOException {
+        // Rare magnitudes near the 16-bit limit exercise the widened narrow path
+        java.util.Random random = new java.util.Random(83);
+        int[] steps = new int[60_000];
+        short[] narrow = new short[steps.length];
+        for (int i = 0; i < steps.length; i++) {
+            int magnitude = (random.nextInt(50) == 0) ? Short.MAX_VALUE - random.nextInt(100) : random.nextInt(1000);
+            steps[i] = random.nextBoolean() ? magnitude : -magnitude;
+            narrow[i] = (short) steps[i];
+        }
+
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("day1_fused_test", ".txt");
+        try (java.lang.foreign.Arena arena = java.lang.foreign.Arena.ofShared()) {
+            for (int modulus : new int[] { 100, 7 }) {
+                long landings = referenceCount(steps, -17,
+                        VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO, modulus);
+                long crossings = referenceCount(steps, -17,
+                        VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO, modulus);
+                long displacement = 0;
+                for (int step : steps) {
+                    displacement += step;
+                }
+                int end = (int) Math.floorMod(-17 + displacement, (long) modulus);
+
+                // The strategy's own type does not matter for the fused runs
+                VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(
+                        VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO, modulus, pool);
+                day1.simulation.SimulationResult wide = new day1.simulation.SimulationResult(-17);
+                day1.simulation.SimulationResult halves = new day1.simulation.SimulationResult(-17);
+                assertTrue(strategy.run(steps, wide));
+                assertTrue(strategy.run(narrow, halves));
+                for (day1.simulation.SimulationResult result : new day1.simulation.SimulationResult[] { wide,
+                        halves }) {
+                    assertEquals(landings, result.landings(), "Landings mod " + modulus);
+                    assertEquals(crossings, result.crossings(), "Crossings mod " + modulus);
+                    assertEquals(end, result.position(), "Position mod " + modulus);
+                    assertEquals(steps.length, result.stepCount());
+                }
+            }
+
+            // One parse of the raw text, split across workers, or through the step cache
+            int[] dayRange = randomSteps(300_000, 89);
+            byte[] bytes = toStepText(dayRange);
+            java.nio.file.Files.write(tempFile, bytes);
+            long landings = referenceCount(dayRange, 50,
+                    VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO);
+            long crossings = referenceCount(dayRange, 50,
+                    VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO);
+
+            VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(
+                    VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO, pool);
+            day1.simulation.SimulationResult fromBytes = new day1.simulation.SimulationResult(50);
+            day1.simulation.SimulationResult fromFile = new day1.simulation.SimulationResult(50);
+            assertTrue(strategy.run(java.nio.ByteBuffer.wrap(bytes), fromBytes));
+            assertTrue(strategy.run(tempFile, arena, fromFile));
+            day1.simulation.SimulationResult solved = day1.Day1Optimized.solve(tempFile.toString());
+            for (day1.simulation.SimulationResult result : new day1.simulation.SimulationResult[] { fromBytes,
+                    fromFile, solved }) {
+                assertEquals(landings, result.landings());
+                assertEquals(crossings, result.crossings());
+                assertEquals(dayRange.length, result.stepCount());
+            }
+            assertEquals(day1.Day1Part1Optimized.solve(tempFile.toString()), solved.landings());
+            assertEquals(day1.Day1Part2Optimized.solve(tempFile.toString()), solved.crossings());
+
+            // The puzzle example parses as a single chunk: three landings, six crossings
+            byte[] example = "L68\nL30\nR48\nL5\nR60\nL55\nL1\nL99\nR14\nL82\n"
+                    .getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+            day1.simulation.SimulationResult fromExample = new day1.simulation.SimulationResult(50);
+            assertTrue(strategy.run(java.nio.ByteBuffer.wrap(example), fromExample));
+            assertEquals(3L, fromExample.landings());
+            assertEquals(6L, fromExample.crossings());
+            assertEquals(32, fromExample.position());
+
+            day1.simulation.SimulationResult puzzle = day1.Day1Optimized.solve("day1/day1.txt");
+            assertEquals(day1.Day1Part1Optimized.solve("day1/day1.txt"), puzzle.landings());
+            assertEquals(day1.Day1Part2Optimized.solve("day1/day1.txt"), puzzle.crossings());
+        } finally {
+            pool.shutdown();
+            java.nio.file.Files.deleteIfExists(tempFile);
+            java.nio.file.Files.deleteIfExists(day1.simulation.StepCache.cachePath(tempFile));
+        }
+    }
+
+    @Test
+    public void testScanSplitsIntoMoreLeavesThanWorkers() {
+        int[] steps = randomSteps(1_000_000, 97);
+        java.util.Map<Integer, Integer> leaves = new java.util.concurrent.ConcurrentHashMap<>();
+        day1.simulation.SimulationListener listener = new day1.simulation.SimulationListener() {
+            @Override
+            public void onChunk(Phase phase, int chunk, long elementCount, long nanos) {
+                if (phase == Phase.COUNT) {
+                    leaves.merge(chunk, 1, Integer::sum);
+                }
+            }
+        };
+
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(2);
+        try {
+            VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(
+                    VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO, pool);
+            long expected = referenceCount(steps, 50, VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO);
+            assertEquals((int) expected, strategy.run(steps, 50, listener).get());
+
+            // Fixed-size leaves, far more than the two workers, each counted exactly once
+            assertTrue(leaves.size() > 2 * 4, "Leaves: " + leaves.size());
+            for (int leaf = 0; leaf < leaves.size(); leaf++) {
+                assertEquals(1, leaves.get(leaf), "Leaf " + leaf);
+            }
+
+            day1.simulation.SimulationResult result = new day1.simulation.SimulationResult(50);
+            assertTrue(strategy.run(steps, result));
+            assertEquals(expected, result.crossings());
+            assertEquals(referenceCount(steps, 50, VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO),
+                    result.landings());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testBatchSimulatorRunsTheConfiguredStrategy() throws IOException, InterruptedException {
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("dial_batch_modulus", ".txt");
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        try (VectorizedSimulationStrategy strategy = new VectorizedSimulationStrategy(
+                VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO, 360, pool)) {
+            int[] steps = randomSteps(50_000, 101);
+            java.nio.file.Files.write(file, toStepText(steps));
+
+            // The per-file simulators see the 360 position strategy itself
+            java.util.List<day1.simulation.DialBatchSimulator.FileResult> results =
+                    new day1.simulation.DialBatchSimulator.Builder()
+                            .filePaths(java.util.List.of(file))
+                            .initialPosition(180)
+                            .modulus(360)
+                            .strategy(strategy)
+                            .computePool(pool)
+                            .build()
+                            .runAll();
+            assertEquals(1, results.size());
+            assertEquals((int) referenceCount(steps, 180,
+                    VectorizedSimulationStrategy.SimulationType.PART2_CROSS_ZERO, 360),
+                    results.get(0).count().get());
+        } finally {
+            pool.shutdown();
+            java.nio.file.Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testBatchSimulatorOnlyCountsOnTheComputePool() throws IOException, InterruptedException {
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("dial_batch_pool", ".txt");
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(2);
+        try {
+            int[] steps = randomSteps(5_000, 107);
+            java.nio.file.Files.write(file, toStepText(steps));
+            java.util.Set<Thread> counting = java.util.concurrent.ConcurrentHashMap.newKeySet();
+            java.util.concurrent.atomic.AtomicBoolean readOnPool = new java.util.concurrent.atomic.AtomicBoolean();
+            day1.simulation.SimulationStrategy recording = (blockSteps, start) -> {
+                counting.add(Thread.currentThread());
+                // The read loop must stay on the virtual thread, below the pool task
+                readOnPool.compareAndSet(false, StackWalker.getInstance().walk(frames -> frames
+                        .anyMatch(frame -> frame.getClassName().equals("day1.simulation.DialSimulator"))));
+                return Optional.of((int) referenceCount(blockSteps, start,
+                        VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO));
+            };
+
+            // Every block is read on the file's virtual thread and counted on the pool
+            java.util.List<day1.simulation.DialBatchSimulator.FileResult> results =
+                    new day1.simulation.DialBatchSimulator.Builder()
+                            .filePaths(java.util.List.of(file))
+                            .initialPosition(50)
+                            .strategy(recording)
+                            .computePool(pool)
+                            .streaming(true)
+                            .blockSize(1_000)
+                            .build()
+                            .runAll();
+            assertEquals((int) referenceCount(steps, 50,
+                    VectorizedSimulationStrategy.SimulationType.PART1_LAND_ON_ZERO), results.get(0).count().get());
+            assertFalse(counting.isEmpty());
+            assertFalse(readOnPool.get(), "The file was read on the compute pool");
+            for (Thread thread : counting) {
+                assertTrue(thread instanceof java.util.concurrent.ForkJoinWorkerThread worker
+                        && worker.getPool() == pool, "Counted on " + thread);
+            }
+        } finally {
+            pool.shutdown();
+            java.nio.file.Files.deleteIfExists(file);
+        }
+    }
 }
@@ -84,4 +84,23 @@ public class Day1VirtualThreadTests {
 
         assertEquals(legacyResult, vtResult, "Virtual Thread Part 2 solution should match legacy");
     }
+
+    @Test
+    public void testVirtualThreadChunkedMatchesLegacy() throws Exception {
+        // Large enough to be split into many byte-range chunks, with CRLF endings
+        java.util.Random random = new java.util.Random(67);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            content.append(random.nextBoolean() ? 'L' : 'R').append(random.nextInt(1000)).append("\r\n");
+        }
+        Path tempFile = Files.createTempFile("day1vtchunks_test", ".txt");
+        Files.write(tempFile, content.toString().getBytes());
+
+        try {
+            assertEquals(Day1Part1.solve(tempFile.toString()), Day1Part1VirtualThread.solve(tempFile.toString()));
+            assertEquals(Day1Part2.solve(tempFile.toString()), Day1Part2VirtualThread.solve(tempFile.toString()));
+        } finally {
+            Files.delete(tempFile);
+        }
+    }
 }
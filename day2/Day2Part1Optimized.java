@@ -48,21 +48,21 @@ public class Day2Part1Optimized {
     /**
      * Calculates the sum of all invalid IDs within the given ranges.
      * Uses a generative approach: generates potential invalid IDs and checks if
-     * they fall in the ranges.
+     * they fall in the ranges through a {@link RangeIndex}, so each check costs
+     * O(log ranges) rather than a scan over every range.
      *
      * @param ranges The list of ranges to check against.
      * @return The sum of invalid IDs.
      */
     private static long calculateTotalInvalidIDs(List<Range> ranges) {
-        long min = Long.MAX_VALUE;
-        long max = Long.MIN_VALUE;
+        RangeIndex.Builder builder = new RangeIndex.Builder();
         for (Range range : ranges) {
-            if (range.start < min)
-                min = range.start;
-            if (range.end > max)
-                max = range.end;
+            builder.add(range.start, range.end);
         }
+        RangeIndex index = builder.build();
 
+        long min = index.min();
+        long max = index.max();
         if (min > max)
             return 0; // Should not happen if ranges is not empty
 
@@ -77,11 +77,8 @@ public class Day2Part1Optimized {
 
         // Use forEach to avoid stream overhead
         generator.forEach(id -> {
-            for (Range range : ranges) {
-                if (range.contains(id)) {
-                    totalSum.addAndGet(id);
-                    break;
-                }
+            if (index.contains(id)) {
+                totalSum.addAndGet(id);
             }
         });
 
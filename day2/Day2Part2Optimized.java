@@ -53,21 +53,21 @@ public class Day2Part2Optimized {
     /**
      * Calculates the sum of all invalid IDs within the given ranges.
      * Uses a generative approach: generates potential invalid IDs and checks if
-     * they fall in the ranges.
+     * they fall in the ranges through a {@link RangeIndex} as they are
+     * generated, so only IDs inside a range reach the shared set.
      *
      * @param ranges The list of ranges to check against.
      * @return The sum of invalid IDs.
      */
     private static long calculateTotalInvalidIDs(List<Range> ranges) {
-        long min = Long.MAX_VALUE;
-        long max = Long.MIN_VALUE;
+        RangeIndex.Builder builder = new RangeIndex.Builder();
         for (Range range : ranges) {
-            if (range.start < min)
-                min = range.start;
-            if (range.end > max)
-                max = range.end;
+            builder.add(range.start, range.end);
         }
+        RangeIndex index = builder.build();
 
+        long min = index.min();
+        long max = index.max();
         if (min > max)
             return 0;
 
@@ -83,19 +83,14 @@ public class Day2Part2Optimized {
                 .withMax(max)
                 .build();
 
-        // Execute generation in parallel
-        generator.generateInParallel(uniqueInvalidIDs::add);
+        // Execute generation in parallel, keeping only the IDs inside a range
+        generator.generateInParallel(id -> {
+            if (index.contains(id)) {
+                uniqueInvalidIDs.add(id);
+            }
+        });
 
-        // Sum up the valid ones
         return uniqueInvalidIDs.stream()
-                .filter(id -> {
-                    for (Range range : ranges) {
-                        if (range.contains(id)) {
-                            return true;
-                        }
-                    }
-                    return false;
-                })
                 .mapToLong(Long::longValue)
                 .sum();
     }
@@ -0,0 +1,145 @@
+package day2;
+
+import java.util.Arrays;
+
+/**
+ * Immutable membership index over a set of inclusive ID ranges.
+ *
+ * <p>
+ * The ranges are sorted and merged (overlapping and adjacent ranges become
+ * one), so the remaining ranges are disjoint and their ends ascend with their
+ * starts. Starts and ends are kept in parallel {@code long[]} arrays in
+ * Eytzinger (BFS) order: the children of slot {@code k} are {@code 2k} and
+ * {@code 2k + 1}. {@link #contains(long)} descends that implicit tree without
+ * a data-dependent branch, and the top levels that every lookup touches share
+ * a few cache lines. A lookup is O(log ranges) instead of a scan over every
+ * range.
+ *
+ * <p>
+ * Instances are safe to query from any number of threads.
+ */
+public final class RangeIndex {
+
+    // 1-based Eytzinger order; slot 0 is unused
+    private final long[] starts;
+    private final long[] ends;
+    private final int size;
+    private final long min;
+    private final long max;
+
+    private RangeIndex(long[] starts, long[] ends, int size, long min, long max) {
+        this.starts = starts;
+        this.ends = ends;
+        this.size = size;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * @return {@code true} if {@code id} lies in one of the ranges.
+     */
+    public boolean contains(long id) {
+        // Find the first range whose end is not below id
+        int k = 1;
+        while (k <= size) {
+            k = 2 * k + (ends[k] < id ? 1 : 0);
+        }
+        // Undo the right turns taken after the last left turn
+        k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        return k != 0 && starts[k] <= id;
+    }
+
+    /**
+     * @return The number of disjoint ranges after merging.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The smallest ID covered, or {@code Long.MAX_VALUE} if empty.
+     */
+    public long min() {
+        return min;
+    }
+
+    /**
+     * @return The largest ID covered, or {@code Long.MIN_VALUE} if empty.
+     */
+    public long max() {
+        return max;
+    }
+
+    public static class Builder {
+        private long[] starts = new long[16];
+        private long[] ends = new long[16];
+        private int count = 0;
+
+        /**
+         * Adds the inclusive range {@code [start, end]}. Empty ranges
+         * ({@code start > end}) are ignored.
+         */
+        public Builder add(long start, long end) {
+            if (start > end) {
+                return this;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+            return this;
+        }
+
+        public RangeIndex build() {
+            // Sort by start, carrying each end along
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(starts[a], starts[b]));
+
+            long[] mergedStarts = new long[count];
+            long[] mergedEnds = new long[count];
+            int merged = 0;
+            for (int i : order) {
+                // Adjacent ranges merge too; end + 1 cannot overflow below Long.MAX_VALUE
+                if (merged > 0 && (mergedEnds[merged - 1] == Long.MAX_VALUE
+                        || starts[i] <= mergedEnds[merged - 1] + 1)) {
+                    mergedEnds[merged - 1] = Math.max(mergedEnds[merged - 1], ends[i]);
+                } else {
+                    mergedStarts[merged] = starts[i];
+                    mergedEnds[merged] = ends[i];
+                    merged++;
+                }
+            }
+
+            long[] layoutStarts = new long[merged + 1];
+            long[] layoutEnds = new long[merged + 1];
+            fill(mergedStarts, mergedEnds, layoutStarts, layoutEnds, 0, 1, merged);
+            long min = (merged > 0) ? mergedStarts[0] : Long.MAX_VALUE;
+            long max = (merged > 0) ? mergedEnds[merged - 1] : Long.MIN_VALUE;
+            return new RangeIndex(layoutStarts, layoutEnds, merged, min, max);
+        }
+
+        /**
+         * Writes the sorted ranges into Eytzinger order with an in-order walk
+         * of the implicit tree.
+         *
+         * @return The next sorted index to place.
+         */
+        private static int fill(long[] sortedStarts, long[] sortedEnds, long[] layoutStarts, long[] layoutEnds,
+                int next, int k, int size) {
+            if (k <= size) {
+                next = fill(sortedStarts, sortedEnds, layoutStarts, layoutEnds, next, 2 * k, size);
+                layoutStarts[k] = sortedStarts[next];
+                layoutEnds[k] = sortedEnds[next];
+                next++;
+                next = fill(sortedStarts, sortedEnds, layoutStarts, layoutEnds, next, 2 * k + 1, size);
+            }
+            return next;
+        }
+    }
+}
@@ -16,6 +16,7 @@ import day2.day2part2;
 import day2.Day2Part2Optimized;
 import day2.Day2Part2ExtraCredit;
 import day2.Day2Part2VirtualThread;
+import day2.RangeIndex;
 
 public class Day2Tests {
 
@@ -93,6 +94,63 @@ public class Day2Tests {
         assertFalse(range.contains(21));
     }
 
+    @Test
+    public void testRangeIndexMergesRanges() {
+        RangeIndex index = new RangeIndex.Builder()
+                .add(30, 40)
+                .add(10, 20)
+                .add(15, 25) // Overlaps [10, 20]
+                .add(26, 28) // Adjacent to [10, 25]
+                .add(50, 50)
+                .add(60, 55) // Empty, ignored
+                .build();
+        assertEquals(3, index.size());
+        assertEquals(10, index.min());
+        assertEquals(50, index.max());
+        assertTrue(index.contains(10));
+        assertTrue(index.contains(27));
+        assertFalse(index.contains(29));
+        assertTrue(index.contains(40));
+        assertFalse(index.contains(41));
+        assertTrue(index.contains(50));
+        assertFalse(index.contains(9));
+        assertFalse(index.contains(51));
+        assertFalse(new RangeIndex.Builder().build().contains(0));
+    }
+
+    @Test
+    public void testRangeIndexMatchesLinearScan() {
+        java.util.Random random = new java.util.Random(7);
+        for (int size : new int[] { 1, 2, 3, 7, 8, 100 }) {
+            List<Day2Part1Optimized.Range> ranges = new java.util.ArrayList<>();
+            RangeIndex.Builder builder = new RangeIndex.Builder();
+            for (int i = 0; i < size; i++) {
+                long start = random.nextInt(10_000);
+                long end = start + random.nextInt(50);
+                ranges.add(new Day2Part1Optimized.Range(start, end));
+                builder.add(start, end);
+            }
+            RangeIndex index = builder.build();
+            for (long id = -1; id <= 10_100; id++) {
+                boolean expected = false;
+                for (Day2Part1Optimized.Range range : ranges) {
+                    expected |= range.contains(id);
+                }
+                assertEquals(expected, index.contains(id), "ID " + id + " with " + size + " ranges");
+            }
+        }
+        // Ranges at the edges of the long domain
+        RangeIndex edges = new RangeIndex.Builder()
+                .add(Long.MIN_VALUE, Long.MIN_VALUE + 1)
+                .add(Long.MAX_VALUE - 1, Long.MAX_VALUE)
+                .add(0, Long.MAX_VALUE - 2)
+                .build();
+        assertEquals(2, edges.size());
+        assertTrue(edges.contains(Long.MIN_VALUE));
+        assertFalse(edges.contains(-1));
+        assertTrue(edges.contains(Long.MAX_VALUE));
+    }
+
     @Test
     public void testInvalidIDGenerator_SmallRange() {
         // Range 10-100.
@@ -1,9 +1,9 @@
 package day3;
 
+import common.MappedInput;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 
 public class Day3Part1Optimized {
 
@@ -19,11 +19,11 @@ public class Day3Part1Optimized {
     }
 
     public static long solve(String filePath) throws IOException {
-        try (RandomAccessFile file = new RandomAccessFile(filePath, "r");
-                FileChannel channel = file.getChannel()) {
+        // The mapping is released when the solve returns
+        try (MappedInput input = MappedInput.open(filePath)) {
 
-            long fileSize = channel.size();
-            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            long fileSize = input.size();
+            MemorySegment segment = input.segment();
 
             long totalSum = 0;
 
@@ -32,8 +32,8 @@ public class Day3Part1Optimized {
             int maxPair = -1; // Max pair value found so far in current line
 
             // We iterate byte by byte
-            for (int i = 0; i < fileSize; i++) {
-                byte b = buffer.get(i);
+            for (long i = 0; i < fileSize; i++) {
+                byte b = segment.get(ValueLayout.JAVA_BYTE, i);
 
                 if (b == '\n') {
                     // End of line
@@ -1,9 +1,11 @@
 package day3;
 
+import common.MappedInput;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -19,7 +21,7 @@ import java.util.Optional;
  * <ul>
  * <li><b>Sequential Strategy</b>: For small files
  * ({@code < PARALLEL_THRESHOLD}), uses
- * single-threaded MappedByteBuffer processing for minimal overhead.</li>
+ * single-threaded processing of the mapped file for minimal overhead.</li>
  * <li><b>Parallel Strategy</b>: For large files, splits the file into chunks
  * aligned
  * to newlines and processes them in parallel using CompletableFuture.</li>
@@ -29,6 +31,10 @@ import java.util.Optional;
  * This approach maximizes performance for the current benchmark (~20KB) while
  * scaling
  * to GB-sized files without code changes.
+ *
+ * <p>
+ * The file is mapped through {@link MappedInput}, so the mapping is released
+ * when the solve returns instead of whenever the garbage collector gets to it.
  */
 public class Day3Part2Optimized {
 
@@ -59,16 +65,15 @@ public class Day3Part2Optimized {
      *         error.
      */
     public static Optional<Long> solve(String filePath) {
-        try (RandomAccessFile file = new RandomAccessFile(filePath, "r");
-                FileChannel channel = file.getChannel()) {
-
-            long fileSize = channel.size();
-            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
-
-            if (fileSize < PARALLEL_THRESHOLD) {
-                return Optional.of(solveSequential(buffer, 0, (int) fileSize));
-            } else {
-                return Optional.of(solveParallel(buffer, (int) fileSize));
+        try {
+            // Only the parallel strategy reads the mapping from other threads
+            if (Files.size(Path.of(filePath)) < PARALLEL_THRESHOLD) {
+                try (MappedInput input = MappedInput.open(filePath)) {
+                    return Optional.of(solveSequential(input.segment(), 0, input.size()));
+                }
+            }
+            try (MappedInput input = MappedInput.openShared(filePath)) {
+                return Optional.of(solveParallel(input.segment(), input.size()));
             }
         } catch (IOException e) {
             return Optional.empty();
@@ -79,13 +84,13 @@ public class Day3Part2Optimized {
      * Sequential processing strategy for small files.
      * Processes a byte range and returns the sum of max joltages.
      */
-    private static long solveSequential(MappedByteBuffer buffer, int start, int end) {
+    private static long solveSequential(MemorySegment input, long start, long end) {
         long totalSum = 0;
         byte[] lineBuffer = new byte[128]; // Max expected line length
         int lineLen = 0;
 
-        for (int i = start; i < end; i++) {
-            byte b = buffer.get(i);
+        for (long i = start; i < end; i++) {
+            byte b = input.get(ValueLayout.JAVA_BYTE, i);
             if (b == '\n') {
                 if (lineLen > 0) {
                     totalSum += findMaxJoltage(lineBuffer, lineLen);
@@ -106,30 +111,30 @@ public class Day3Part2Optimized {
      * Parallel processing strategy for large files.
      * Splits the file into chunks aligned to newlines and processes in parallel.
      */
-    private static long solveParallel(MappedByteBuffer buffer, int fileSize) {
+    private static long solveParallel(MemorySegment input, long fileSize) {
         int numThreads = Runtime.getRuntime().availableProcessors();
-        int chunkSize = fileSize / numThreads;
+        long chunkSize = fileSize / numThreads;
 
         List<CompletableFuture<Long>> futures = new ArrayList<>(numThreads);
 
-        int start = 0;
+        long start = 0;
         for (int t = 0; t < numThreads; t++) {
-            int end = (t == numThreads - 1) ? fileSize : start + chunkSize;
+            long end = (t == numThreads - 1) ? fileSize : start + chunkSize;
 
             // Align to next newline to avoid splitting lines
-            while (end < fileSize && buffer.get(end) != '\n') {
+            while (end < fileSize && input.get(ValueLayout.JAVA_BYTE, end) != '\n') {
                 end++;
             }
             if (end < fileSize) {
                 end++; // Include the newline character
             }
 
-            final int chunkStart = start;
-            final int chunkEnd = end;
+            final long chunkStart = start;
+            final long chunkEnd = end;
 
             futures.add(CompletableFuture.supplyAsync(() -> {
                 // Create a slice view for this thread's chunk
-                return solveSequentialDirect(buffer, chunkStart, chunkEnd);
+                return solveSequentialDirect(input, chunkStart, chunkEnd);
             }, ForkJoinPool.commonPool()));
 
             start = end;
@@ -142,15 +147,15 @@ public class Day3Part2Optimized {
 
     /**
      * Direct buffer access version for parallel chunks.
-     * Avoids buffer position conflicts by using absolute get().
+     * Reads the segment at absolute offsets, so chunks never share state.
      */
-    private static long solveSequentialDirect(MappedByteBuffer buffer, int start, int end) {
+    private static long solveSequentialDirect(MemorySegment input, long start, long end) {
         long totalSum = 0;
         byte[] lineBuffer = new byte[128];
         int lineLen = 0;
 
-        for (int i = start; i < end; i++) {
-            byte b = buffer.get(i);
+        for (long i = start; i < end; i++) {
+            byte b = input.get(ValueLayout.JAVA_BYTE, i);
             if (b == '\n') {
                 if (lineLen > 0) {
                     totalSum += findMaxJoltage(lineBuffer, lineLen);
@@ -7,6 +7,7 @@ import day3.Day3Part1VirtualThread;
 import day3.Day3Part2VirtualThread;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -118,4 +119,34 @@ public class Day3Tests {
             Files.delete(tempFile);
         }
     }
+
+    @Test
+    public void testPart2OptimizedParallelUnmapsInput() throws IOException {
+        // Above the parallel threshold, so chunks are read from worker threads
+        Path tempFile = Files.createTempFile("day3part2_parallel_test", ".txt");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 80_000; i++) {
+            content.append(i % 2 == 0 ? "987654321111111\n" : "811111111111119\n");
+        }
+        Files.write(tempFile, content.toString().getBytes());
+
+        try {
+            // Repeated solves map and unmap the file every time
+            for (int run = 0; run < 3; run++) {
+                assertEquals(40_000L * 1798765432230L, day3.Day3Part2Optimized.solve(tempFile.toString()).get());
+            }
+
+            java.lang.foreign.MemorySegment segment;
+            try (common.MappedInput input = common.MappedInput.open(tempFile.toString())) {
+                segment = input.segment();
+                assertEquals(Files.size(tempFile), input.size());
+                assertEquals((byte) '9', segment.get(java.lang.foreign.ValueLayout.JAVA_BYTE, 0));
+            }
+            // Closing the input unmapped the file
+            assertThrows(IllegalStateException.class,
+                    () -> segment.get(java.lang.foreign.ValueLayout.JAVA_BYTE, 0));
+        } finally {
+            Files.delete(tempFile);
+        }
+    }
 }